@@ -76,6 +76,8 @@ DROP TABLE Bundle2Bitstream;
 DROP TABLE Item2Bundle;
 DROP TABLE harvested_collection;
 DROP TABLE harvested_item;
+DROP TABLE oairecord;
+DROP TABLE extractedtext;
 DROP TABLE Group2GroupCache;
 DROP TABLE Group2Group;
 DROP TABLE FileExtension;
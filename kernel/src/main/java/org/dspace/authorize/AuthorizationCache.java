@@ -0,0 +1,308 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authorize;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.Subscribe;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumes;
+import org.dspace.event.ContainerEvent;
+import org.dspace.event.ContentEvent;
+
+/**
+ * AuthorizationCache is a process-wide, bounded cache of authorization
+ * decisions, i.e. whether a given user may perform a given action on a given
+ * object. Decisions are grouped by object, so that all decisions on an object
+ * can be discarded when the object, or the policies on it, change.
+ * <p>
+ * Entries are invalidated immediately by policy and group changes, and again
+ * once the changing transaction commits - as the changing context records
+ * them - since other contexts may meanwhile have cached decisions on the
+ * policies still committed. Contexts with uncommitted changes neither use nor
+ * fill the cache, as their decisions may be rolled back. Content events also
+ * invalidate entries once committed (when registered as an event
+ * subscriber); as ADMIN rights are inherited down the containment hierarchy,
+ * adding or removing a member that contains other objects (e.g. moving or
+ * mapping an item) discards all decisions. Since policies may carry start
+ * and end dates, entries also expire after a configurable time to live.
+ * <p>
+ * Configuration (kernel.cfg):
+ * <ul>
+ * <li>authorization.cache.enabled - switch cache on or off (default true)</li>
+ * <li>authorization.cache.size - maximum number of objects cached (default 10000)</li>
+ * <li>authorization.cache.ttl - seconds before an entry expires (default 300)</li>
+ * </ul>
+ */
+@Consumes("content")
+public class AuthorizationCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthorizationCache.class);
+
+    private static final boolean enabled =
+            ConfigurationManager.getBooleanProperty("authorization.cache.enabled", true);
+
+    // object -> (packed user, action, inheritance) -> decision
+    private static final Cache<ObjectKey, ConcurrentMap<Long, Boolean>> decisions =
+            CacheBuilder.newBuilder()
+                        .maximumSize(ConfigurationManager.getIntProperty("authorization.cache.size", 10000))
+                        .expireAfterWrite(ConfigurationManager.getIntProperty("authorization.cache.ttl", 300), TimeUnit.SECONDS)
+                        .build();
+
+    // incremented on every invalidation, so decisions computed before an invalidation are not cached after it
+    private static final AtomicLong generation = new AtomicLong();
+
+    // metrics for cache effectiveness
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(AuthorizationCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(AuthorizationCache.class, "misses"));
+
+    static {
+        ConfigurationManager.metrics.register(MetricRegistry.name(AuthorizationCache.class, "hit-rate"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    public AuthorizationCache() {}
+
+    /**
+     * Reports whether decision caching is enabled.
+     *
+     * @return true if decisions may be cached
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current invalidation generation. Callers computing a decision
+     * should obtain it before consulting the database, and pass it to
+     * <code>put</code> afterwards.
+     *
+     * @return the generation
+     */
+    static long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Returns a cached decision, or null if none is cached.
+     *
+     * @param userID ID of user, 0 for anonymous
+     * @param dso the object
+     * @param action the action from <code>org.dspace.core.Constants</code>
+     * @param useInheritance whether inherited ADMIN rights were considered
+     * @return the cached decision or null
+     */
+    static Boolean get(int userID, DSpaceObject dso, int action, boolean useInheritance) {
+        ConcurrentMap<Long, Boolean> objDecisions = decisions.getIfPresent(new ObjectKey(dso.getType(), dso.getID()));
+        Boolean decision = (objDecisions != null) ? objDecisions.get(decisionKey(userID, action, useInheritance)) : null;
+        if (decision != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+        }
+        return decision;
+    }
+
+    /**
+     * Caches a decision, unless any invalidation has occurred since
+     * the passed generation was obtained.
+     *
+     * @param userID ID of user, 0 for anonymous
+     * @param dso the object
+     * @param action the action from <code>org.dspace.core.Constants</code>
+     * @param useInheritance whether inherited ADMIN rights were considered
+     * @param decision the decision
+     * @param gen generation obtained before the decision was computed
+     */
+    static void put(int userID, DSpaceObject dso, int action, boolean useInheritance, boolean decision, long gen) {
+        ObjectKey key = new ObjectKey(dso.getType(), dso.getID());
+        ConcurrentMap<Long, Boolean> objDecisions = decisions.getIfPresent(key);
+        if (objDecisions == null) {
+            objDecisions = new ConcurrentHashMap<>();
+            ConcurrentMap<Long, Boolean> prior = decisions.asMap().putIfAbsent(key, objDecisions);
+            if (prior != null) {
+                objDecisions = prior;
+            }
+        }
+        objDecisions.put(decisionKey(userID, action, useInheritance), Boolean.valueOf(decision));
+        if (gen != generation.get()) {
+            // an invalidation raced with the decision - discard what we may have added
+            decisions.invalidate(key);
+        }
+    }
+
+    /**
+     * Discards all cached decisions on an object.
+     *
+     * @param type the object type
+     * @param id the object ID
+     */
+    public static void invalidate(int type, int id) {
+        generation.incrementAndGet();
+        decisions.invalidate(new ObjectKey(type, id));
+    }
+
+    /**
+     * Discards all cached decisions on an object.
+     *
+     * @param dso the object
+     */
+    public static void invalidate(DSpaceObject dso) {
+        invalidate(dso.getType(), dso.getID());
+    }
+
+    /**
+     * Discards all cached decisions affected by a change to policies on an
+     * object. Since ADMIN rights are inherited by contained objects,
+     * changes to ADMIN (or unknown) policies on anything but a bitstream
+     * discard all decisions.
+     *
+     * @param type the object type
+     * @param id the object ID
+     * @param action the policy action, or -1 if unknown
+     */
+    public static void policyChanged(int type, int id, int action) {
+        if (action == Constants.ADMIN || (action == -1 && type != Constants.BITSTREAM)) {
+            invalidateAll();
+        } else {
+            invalidate(type, id);
+        }
+    }
+
+    /**
+     * As <code>policyChanged(type, id, action)</code>, also recording the
+     * change in the changing context, to be invalidated again once committed.
+     *
+     * @param context the changing context
+     * @param type the object type
+     * @param id the object ID
+     * @param action the policy action, or -1 if unknown
+     */
+    public static void policyChanged(Context context, int type, int id, int action) {
+        if (action == Constants.ADMIN || (action == -1 && type != Constants.BITSTREAM)) {
+            invalidateAll(context);
+        } else {
+            invalidate(type, id);
+            context.authorizationChanged(type, id);
+        }
+    }
+
+    /**
+     * Discards all cached decisions, e.g. when group membership changes.
+     */
+    public static void invalidateAll() {
+        generation.incrementAndGet();
+        decisions.invalidateAll();
+    }
+
+    /**
+     * As <code>invalidateAll()</code>, also recording the change in the
+     * changing context, to be invalidated again once committed.
+     *
+     * @param context the changing context
+     */
+    public static void invalidateAll(Context context) {
+        invalidateAll();
+        context.authorizationChanged(-1, -1);
+    }
+
+    /**
+     * Discards the cached decisions on objects whose authorization changed
+     * in a transaction, once committed.
+     *
+     * @param changes the changed objects, as packed type and ID, or -1 for all
+     */
+    public static void committed(Set<Long> changes) {
+        if (changes.contains(-1L)) {
+            invalidateAll();
+            return;
+        }
+        for (long change : changes) {
+            invalidate((int)(change >> 32), (int)change);
+        }
+    }
+
+    /**
+     * Event listener: discards cached decisions on objects changed by a
+     * committed transaction.
+     *
+     * @param event the content event
+     */
+    @Subscribe
+    public void invalidateContent(ContentEvent event) {
+        int type = event.getObject().getType();
+        if (type == Constants.GROUP || type == Constants.EPERSON) {
+            // membership changes may affect any decision
+            invalidateAll();
+            return;
+        }
+        if (event instanceof ContainerEvent) {
+            // membership in a container changes inherited rights of the member
+            // and, through it, of everything it contains
+            DSpaceObject member = ((ContainerEvent)event).getMember();
+            if (member != null && member.getType() != Constants.BITSTREAM) {
+                invalidateAll();
+                return;
+            }
+            if (member != null) {
+                invalidate(member);
+            }
+        }
+        invalidate(event.getObject());
+        log.debug("Invalidated decisions for " + Constants.typeText[type] + ":" + event.getObject().getID());
+    }
+
+    private static long decisionKey(int userID, int action, boolean useInheritance) {
+        return ((long)userID << 32) | ((action & 0x7fffffffL) << 1) | (useInheritance ? 1L : 0L);
+    }
+
+    // object identity within the cache
+    private static final class ObjectKey {
+        private final int type;
+        private final int id;
+
+        ObjectKey(int type, int id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (! (obj instanceof ObjectKey)) {
+                return false;
+            }
+            ObjectKey other = (ObjectKey)obj;
+            return type == other.type && id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type + id;
+        }
+    }
+}
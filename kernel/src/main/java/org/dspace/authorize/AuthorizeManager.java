@@ -9,7 +9,9 @@ package org.dspace.authorize;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Community;
@@ -42,6 +44,9 @@ import org.dspace.storage.rdbms.TableRowIterator;
  */
 public class AuthorizeManager
 {
+    /** maximum number of object IDs in a single prefetch query */
+    private static final int PREFETCH_CHUNK = 500;
+
     /**
      * Utility method, checks that the current user of the given context can
      * perform all of the specified actions on the given object. An
@@ -294,11 +299,56 @@ public class AuthorizeManager
         }
 
         // is eperson set? if not, userid = 0 (anonymous)
-	int userid = 0;
-        if (e != null)
+        int userid = (e != null) ? e.getID() : 0;
+
+        // special groups are particular to this context, so decisions
+        // depending on them cannot be shared; nor can decisions seeing
+        // policy or group changes not yet committed
+        if (! AuthorizationCache.isEnabled() || c.hasSpecialGroups() || c.hasAuthorizationChanges())
         {
-            userid = e.getID();
+            return evaluate(c, o, action, e, userid, useInheritance);
+        }
+
+        Boolean cached = AuthorizationCache.get(userid, o, action, useInheritance);
+        if (cached != null)
+        {
+            return cached.booleanValue();
+        }
 
+        long generation = AuthorizationCache.generation();
+        boolean authorized = evaluate(c, o, action, e, userid, useInheritance);
+        AuthorizationCache.put(userid, o, action, useInheritance, authorized, generation);
+
+        return authorized;
+    }
+
+    /**
+     * Evaluate the policies (and admin rights) giving the given user permission
+     * to perform the given action on the given object.
+     *
+     * @param c
+     *            current context
+     * @param o
+     *            object action is being attempted on
+     * @param action
+     *            ID of action being attempted, from
+     *            <code>org.dspace.core.Constants</code>
+     * @param e
+     *            user attempting action
+     * @param userid
+     *            ID of user, or 0 if anonymous
+     * @param useInheritance
+     *            flag to say if ADMIN action on the current object or parent
+     *            object can be used
+     * @return <code>true</code> if user is authorized to perform the given
+     *         action, <code>false</code> otherwise
+     * @throws SQLException
+     */
+    private static boolean evaluate(Context c, DSpaceObject o, int action,
+            EPerson e, int userid, boolean useInheritance) throws SQLException
+    {
+        if (e != null)
+        {
             // perform isAdmin check to see
             // if user is an Admin on this object
             DSpaceObject testObject = useInheritance?o.getAdminObject(action):null;
@@ -513,6 +563,13 @@ public class AuthorizeManager
     public static List<ResourcePolicy> getPolicies(Context c, DSpaceObject o)
             throws SQLException
     {
+        List<ResourcePolicy> prefetched = c.getCachedPolicies(o.getType(), o.getID());
+
+        if (prefetched != null)
+        {
+            return new ArrayList<ResourcePolicy>(prefetched);
+        }
+
     	TableRowIterator tri = DatabaseManager.queryTable(c, "resourcepolicy",
                 "SELECT * FROM resourcepolicy WHERE resource_type_id= ? AND resource_id= ? ",
                 o.getType(),o.getID());
@@ -613,13 +670,26 @@ public class AuthorizeManager
     public static List<ResourcePolicy> getPoliciesActionFilter(Context c, DSpaceObject o,
             int actionID) throws SQLException
     {
+        List<ResourcePolicy> policies = new ArrayList<ResourcePolicy>();
+        List<ResourcePolicy> prefetched = c.getCachedPolicies(o.getType(), o.getID());
+
+        if (prefetched != null)
+        {
+            for (ResourcePolicy rp : prefetched)
+            {
+                if (rp.getAction() == actionID)
+                {
+                    policies.add(rp);
+                }
+            }
+            return policies;
+        }
+
     	TableRowIterator tri = DatabaseManager.queryTable(c, "resourcepolicy",
                 "SELECT * FROM resourcepolicy WHERE resource_type_id= ? "+
                 "AND resource_id= ? AND action_id= ? ", 
                 o.getType(), o.getID(),actionID);
 
-        List<ResourcePolicy> policies = new ArrayList<ResourcePolicy>();
-
         try
         {
             while (tri.hasNext())
@@ -651,6 +721,106 @@ public class AuthorizeManager
         return policies;
     }
 
+    /**
+     * Loads the policies of a set of objects in as few queries as possible,
+     * and holds them in the context, so that subsequent calls to
+     * <code>getPolicies</code>, <code>getPoliciesActionFilter</code>, and
+     * thus authorization checks, on any of the objects need not query the
+     * database. Intended to be called before iterating over the members of
+     * a container, e.g. the bitstreams of a bundle. Prefetched policies are
+     * discarded when any policy is changed in the context, or the context
+     * cache is cleared.
+     * 
+     * @param c
+     *            context
+     * @param dsos
+     *            objects whose policies should be loaded, of any type
+     * @throws SQLException
+     *             if there's a database problem
+     */
+    public static void prefetchPolicies(Context c, List<? extends DSpaceObject> dsos)
+            throws SQLException
+    {
+        // collect object IDs not yet prefetched, by type
+        Map<Integer, List<Integer>> idsByType = new HashMap<Integer, List<Integer>>();
+
+        for (DSpaceObject dso : dsos)
+        {
+            if (c.getCachedPolicies(dso.getType(), dso.getID()) == null)
+            {
+                List<Integer> ids = idsByType.get(dso.getType());
+
+                if (ids == null)
+                {
+                    ids = new ArrayList<Integer>();
+                    idsByType.put(dso.getType(), ids);
+                }
+                ids.add(dso.getID());
+            }
+        }
+
+        for (Map.Entry<Integer, List<Integer>> entry : idsByType.entrySet())
+        {
+            int type = entry.getKey();
+            List<Integer> ids = entry.getValue();
+
+            for (int start = 0; start < ids.size(); start += PREFETCH_CHUNK)
+            {
+                List<Integer> chunk = ids.subList(start, Math.min(start + PREFETCH_CHUNK, ids.size()));
+                prefetchChunk(c, type, chunk);
+            }
+        }
+    }
+
+    private static void prefetchChunk(Context c, int type, List<Integer> ids)
+            throws SQLException
+    {
+        Map<Integer, List<ResourcePolicy>> policyMap = new HashMap<Integer, List<ResourcePolicy>>();
+        StringBuilder query = new StringBuilder(
+                "SELECT * FROM resourcepolicy WHERE resource_type_id= ? AND resource_id IN (");
+        Object[] params = new Object[ids.size() + 1];
+
+        params[0] = type;
+        for (int i = 0; i < ids.size(); i++)
+        {
+            query.append((i > 0) ? ",?" : "?");
+            params[i + 1] = ids.get(i);
+            policyMap.put(ids.get(i), new ArrayList<ResourcePolicy>());
+        }
+        query.append(")");
+
+        TableRowIterator tri = DatabaseManager.queryTable(c, "resourcepolicy",
+                query.toString(), params);
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                // first check the cache
+                ResourcePolicy cachepolicy = (ResourcePolicy) c.fromCache(
+                        ResourcePolicy.class, row.getIntColumn("policy_id"));
+
+                policyMap.get(row.getIntColumn("resource_id")).add(
+                        (cachepolicy != null) ? cachepolicy : new ResourcePolicy(c, row));
+            }
+        }
+        finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+
+        // objects without any policies are recorded too, as empty lists
+        for (Map.Entry<Integer, List<ResourcePolicy>> entry : policyMap.entrySet())
+        {
+            c.cachePolicies(type, entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Add policies to an object to match those from a previous object
      * 
@@ -699,21 +869,10 @@ public class AuthorizeManager
     public static void addPolicies(Context c, List<ResourcePolicy> policies, DSpaceObject dest)
             throws SQLException, AuthorizeException
     {
-        // now add them to the destination object
-        for (ResourcePolicy srp : policies)
+        // now add them to the destination object, in one batch
+        if (! policies.isEmpty())
         {
-            ResourcePolicy drp = ResourcePolicy.create(c);
-
-            // copy over values
-            drp.setResource(dest);
-            drp.setAction(srp.getAction());
-            drp.setEPerson(srp.getEPerson());
-            drp.setGroup(srp.getGroup());
-            drp.setStartDate(srp.getStartDate());
-            drp.setEndDate(srp.getEndDate());
-
-            // and write out new policy
-            drp.update();
+            ResourcePolicy.copy(c, policies, dest);
         }
     }
 
@@ -734,6 +893,7 @@ public class AuthorizeManager
     	 DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                  + "resource_type_id= ? AND resource_id= ? ",
                  o.getType(), o.getID());
+         policiesChanged(c, o.getType(), o.getID(), -1);
     }
 
     /**
@@ -764,6 +924,7 @@ public class AuthorizeManager
                     "DELETE FROM resourcepolicy WHERE resource_type_id= ? AND "+
                     "resource_id= ? AND action_id= ? ",
                     dso.getType(), dso.getID(), actionID);
+            policiesChanged(context, dso.getType(), dso.getID(), actionID);
         }
     }
 
@@ -783,6 +944,8 @@ public class AuthorizeManager
     {
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "epersongroup_id= ? ", groupID);
+        c.clearCachedPolicies();
+        AuthorizationCache.invalidateAll(c);
     }
 
     /**
@@ -804,6 +967,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND epersongroup_id= ? ",
                 o.getType(), o.getID(), g.getID());
+        policiesChanged(c, o.getType(), o.getID(), -1);
     }
 
     /**
@@ -825,6 +989,7 @@ public class AuthorizeManager
         DatabaseManager.updateQuery(c, "DELETE FROM resourcepolicy WHERE "
                 + "resource_type_id= ? AND resource_id= ? AND eperson_id= ? ",
                 o.getType(), o.getID(), e.getID());
+        policiesChanged(c, o.getType(), o.getID(), -1);
     }
 
     /**
@@ -896,6 +1061,16 @@ public class AuthorizeManager
         return groupArray;
     }
     
+    /**
+     * Discards prefetched policies and cached decisions after
+     * policies on an object have changed
+     */
+    private static void policiesChanged(Context c, int type, int id, int action)
+    {
+        c.clearCachedPolicies();
+        AuthorizationCache.policyChanged(c, type, id, action);
+    }
+
     ///////////// AuthorizeUtil methods //////////////////
     
     /**
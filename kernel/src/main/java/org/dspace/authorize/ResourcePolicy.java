@@ -8,7 +8,9 @@
 package org.dspace.authorize;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -169,6 +171,58 @@ public class ResourcePolicy
         return new ResourcePolicy(context, row);
     }
 
+    /**
+     * Create copies of policies bound to an object, all written in one batch.
+     * The copies keep the action, e-person, group and dates of the originals.
+     *
+     * @param context
+     *            DSpace context object
+     * @param policies
+     *            the policies to copy
+     * @param dest
+     *            the object the copies apply to
+     * @return the new policies
+     */
+    static List<ResourcePolicy> copy(Context context, List<ResourcePolicy> policies,
+            DSpaceObject dest) throws SQLException
+    {
+        List<TableRow> rows = new ArrayList<TableRow>(policies.size());
+        for (ResourcePolicy srp : policies)
+        {
+            TableRow row = DatabaseManager.row("ResourcePolicy");
+            row.setColumn("resource_type_id", dest.getType());
+            row.setColumn("resource_id", dest.getID());
+            row.setColumn("action_id", srp.getAction());
+            copyColumn(srp.myRow, row, "eperson_id");
+            copyColumn(srp.myRow, row, "epersongroup_id");
+            row.setColumn("start_date", srp.getStartDate());
+            row.setColumn("end_date", srp.getEndDate());
+            rows.add(row);
+        }
+        DatabaseManager.insertBatch(context, rows);
+
+        List<ResourcePolicy> copies = new ArrayList<ResourcePolicy>(rows.size());
+        for (TableRow row : rows)
+        {
+            ResourcePolicy drp = new ResourcePolicy(context, row);
+            drp.decisionsChanged();
+            copies.add(drp);
+        }
+        return copies;
+    }
+
+    private static void copyColumn(TableRow src, TableRow dest, String column)
+    {
+        if (src.isColumnNull(column))
+        {
+            dest.setColumnNull(column);
+        }
+        else
+        {
+            dest.setColumn(column, src.getIntColumn(column));
+        }
+    }
+
     /**
      * Delete an ResourcePolicy
      *  
@@ -178,6 +232,7 @@ public class ResourcePolicy
         // FIXME: authorizations
         // Remove ourself
         DatabaseManager.delete(myContext, myRow);
+        decisionsChanged();
     }
 
     /**
@@ -218,6 +273,7 @@ public class ResourcePolicy
      */
     public void setResourceType(int mytype)
     {
+        decisionsChanged();
         myRow.setColumn("resource_type_id", mytype);
     }
 
@@ -240,6 +296,7 @@ public class ResourcePolicy
      */
     public void setResourceID(int myid)
     {
+        decisionsChanged();
         myRow.setColumn("resource_id", myid);
     }
 
@@ -275,6 +332,7 @@ public class ResourcePolicy
      */
     public void setAction(int myid)
     {
+        decisionsChanged();
         myRow.setColumn("action_id", myid);
     }
 
@@ -454,5 +512,20 @@ public class ResourcePolicy
     {
         // FIXME: Check authorisation
         DatabaseManager.update(myContext, myRow);
+        decisionsChanged();
+    }
+
+    /**
+     * Discard any prefetched policies in our context, and any cached
+     * authorization decisions this policy (as currently bound to a resource)
+     * may have contributed to
+     */
+    private void decisionsChanged()
+    {
+        myContext.clearCachedPolicies();
+        if (getResourceID() != -1)
+        {
+            AuthorizationCache.policyChanged(myContext, getResourceType(), getResourceID(), getAction());
+        }
     }
 }
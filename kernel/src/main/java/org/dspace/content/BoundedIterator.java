@@ -11,10 +11,18 @@ package org.dspace.content;
 import java.io.Closeable;
 import java.sql.SQLException;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
+import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
 import org.dspace.storage.rdbms.TableRow;
 import org.dspace.storage.rdbms.TableRowIterator;
 
@@ -25,11 +33,17 @@ import org.dspace.storage.rdbms.TableRowIterator;
  * offset, and a maximum number of records to deliver.
  * Iterator maintains a constant memory profile by decaching
  * last-accessed objects from context.
+ * Iterator may optionally preload: read objects ahead in chunks, and load
+ * the metadata (and optionally handles) of each chunk in one query, rather
+ * than one query per object.
  *
  * @author richardrodgers
  */
 public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Closeable {
 
+    /** Suggested number of objects to preload at a time */
+    public static final int PRELOAD_CHUNK = 100;
+
     /** Our context */
     private Context context;
 
@@ -47,6 +61,15 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
     
     /** Read cursor */
     private long cursor = 0L;
+
+    /** Number of objects to read ahead and preload, 0 if not preloading */
+    private int chunkSize = 0;
+
+    /** Whether handles are preloaded as well as metadata */
+    private boolean preloadHandles = false;
+
+    /** Objects read ahead, and preloaded */
+    private Deque<T> chunk = new ArrayDeque<T>();
     
     /**
      * Construct a bounded iterator using a set of TableRow objects from
@@ -67,6 +90,23 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
         this.offset = offset;
         this.max = max;
     }
+
+    /**
+     * Turns on preloading: objects will be read ahead in chunks of the
+     * passed size, and the metadata of each chunk loaded in one query.
+     * Intended for traversals touching the metadata of every object.
+     *
+     * @param chunkSize
+     *            the number of objects to read ahead
+     * @param handles
+     *            if true, also preload the handles of each chunk
+     * @return this iterator
+     */
+    public BoundedIterator<T> preload(int chunkSize, boolean handles) {
+        this.chunkSize = chunkSize;
+        this.preloadHandles = handles;
+        return this;
+    }
    
     /**
      * Find out if there are any more objects to iterate over
@@ -77,6 +117,9 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
     @Override
     public boolean hasNext() {
     	try {
+    		if (! chunk.isEmpty()) {
+    			return true;
+    		}
     		if (rows != null) {
     			return rows.hasNext() && (max < 0L || cursor < max);
     		}
@@ -94,6 +137,9 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
     @Override
     public T next() {
     	try {
+    		if (chunkSize > 0) {
+    			return nextFromChunk();
+    		}
     		if (rows != null && rows.hasNext()) {
     			cursor++;
     			return nextByRow();
@@ -119,8 +165,48 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
      * @throws SQLException
      */
     private T nextByRow() throws SQLException {
-        // Convert the row into a DSO
-        TableRow row = rows.next();
+        T dso = composeByRow(rows.next());
+        // if prev assigned, decache it
+        if (prevRef != null) {
+        	prevRef.decacheMe();
+        }
+        prevRef = dso;
+        return dso;
+    }
+
+    /**
+     * Return the next object from the preloaded chunk, reading
+     * and preloading the next chunk if necessary
+     *
+     * @return	the object or null if none
+     * @throws SQLException
+     */
+    private T nextFromChunk() throws SQLException {
+        if (chunk.isEmpty()) {
+            while (rows != null && chunk.size() < chunkSize &&
+                   rows.hasNext() && (max < 0L || cursor < max)) {
+                cursor++;
+                chunk.add(composeByRow(rows.next()));
+            }
+            if (chunk.isEmpty()) {
+                close();
+                return null;
+            }
+            preloadChunk();
+        }
+        T dso = chunk.poll();
+        // if prev assigned, decache it
+        if (prevRef != null) {
+        	prevRef.decacheMe();
+        }
+        prevRef = dso;
+        return dso;
+    }
+
+    /**
+     * Convert a row into a DSO, or obtain it from the context cache
+     */
+    private T composeByRow(TableRow row) throws SQLException {
         String tName = row.getTable();
         int objType = Constants.getTypeID(tName.toUpperCase());
         // Check cache
@@ -129,14 +215,52 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
         if (dso == null) {
         	dso = (T)DSpaceObject.composeDSO(context, objType, row);
         }
-        // if prev assigned, decache it
-        if (prevRef != null) {
-        	prevRef.decacheMe();
-        }
-        prevRef = dso;
         return dso;
     }
 
+    /**
+     * Load metadata, and optionally handles, for all objects in the chunk
+     */
+    private void preloadChunk() throws SQLException {
+        Map<Integer, T> byDsoID = new HashMap<Integer, T>();
+        Map<Integer, T> byID = new HashMap<Integer, T>();
+        for (T dso : chunk) {
+            byDsoID.put(dso.getDSOiD(), dso);
+            byID.put(dso.getID(), dso);
+        }
+
+        Map<Integer, List<TableRow>> mdRows = new HashMap<Integer, List<TableRow>>();
+        for (Integer dsoID : byDsoID.keySet()) {
+            mdRows.put(dsoID, new ArrayList<TableRow>());
+        }
+        try (TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataValue",
+                "SELECT * FROM MetadataValue WHERE dso_id IN (" + placeholders(byDsoID.size()) + ") " +
+                "ORDER BY dso_id, metadata_field_id, place", byDsoID.keySet().toArray())) {
+            while (tri.hasNext()) {
+                TableRow row = tri.next();
+                mdRows.get(row.getIntColumn("dso_id")).add(row);
+            }
+        }
+        for (Map.Entry<Integer, List<TableRow>> entry : mdRows.entrySet()) {
+            byDsoID.get(entry.getKey()).preloadMetadata(entry.getValue());
+        }
+
+        if (preloadHandles) {
+            Map<Integer, String> handles = HandleManager.findHandles(context, chunk.peek().getType(), byID.keySet());
+            for (Map.Entry<Integer, String> entry : handles.entrySet()) {
+                byID.get(entry.getKey()).preloadHandle(entry.getValue());
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append((i > 0) ? ",?" : "?");
+        }
+        return sb.toString();
+    }
+
     /**
      * Dispose of this Iterator, and its underlying resources
      */
@@ -145,6 +269,7 @@ public class BoundedIterator<T extends DSpaceObject> implements Iterator<T>, Clo
             rows.close();
             rows = null;
         }
+        chunk.clear();
         prevRef = null;
     }
 }
@@ -607,6 +607,7 @@ public class Bundle extends DSpaceObject
 
     public List<ResourcePolicy> getBitstreamPolicies() throws SQLException {
         List<ResourcePolicy> list = new ArrayList<ResourcePolicy>();
+        AuthorizeManager.prefetchPolicies(context, bitstreams);
         for (Bitstream bs : bitstreams) {
             list.addAll(AuthorizeManager.getPolicies(context, bs));
         }
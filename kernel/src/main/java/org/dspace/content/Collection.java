@@ -303,6 +303,7 @@ public class Collection extends DSpaceObject
      */
     public void setName(String name) {
         tableRow.setColumn("name", name);
+        modified = true;
     }
 
     /**
@@ -314,6 +314,7 @@ public class Community extends DSpaceObject
      */
     public void setName(String name) {
         tableRow.setColumn("name", name);
+        modified = true;
     }
 
     /**
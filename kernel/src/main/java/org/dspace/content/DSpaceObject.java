@@ -9,11 +9,17 @@ package org.dspace.content;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.skife.jdbi.v2.Update;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +41,15 @@ public abstract class DSpaceObject
     /** logger */
     private static Logger log = LoggerFactory.getLogger(DSpaceObject.class);
 
+    /** maximum number of metadata rows written or removed in one statement */
+    private static final int METADATA_CHUNK = 500;
+
+    /** maximum number of parsed metadata field specs retained */
+    private static final int MAX_MD_SPECS = 1000;
+
+    // Parsed metadata field specs (schema.element[.qualifier|.*]) - from configuration, mostly
+    private static final Map<String, String[]> mdSpecs = new ConcurrentHashMap<String, String[]>();
+
     /** Our context */
     protected Context context;
 
@@ -47,6 +62,12 @@ public abstract class DSpaceObject
     // Object metadata
     private List<MDValue> metadata;
 
+    // Index of metadata by schema, element and qualifier - built on first use
+    private Map<String, Map<String, Map<String, List<MDValue>>>> mdIndex;
+
+    // Row IDs of persisted metadata, by value - as loaded or last written
+    private Map<MDValue, List<Integer>> persistedMetadata;
+
     // Flag set when metadata is modified
     protected boolean modifiedMetadata;
 
@@ -185,14 +206,64 @@ public abstract class DSpaceObject
 
         // Build up list of matching values
         List<MDValue> values = new ArrayList<MDValue>();
-        for (MDValue mdv : getMetadata()) {
-            if (mdv.match(schema, element, qualifier, lang)) {
-                values.add(mdv);
+        if (MDValue.ANY.equals(schema)) {
+            // index is of no help
+            for (MDValue mdv : getMetadata()) {
+                if (mdv.match(schema, element, qualifier, lang)) {
+                    values.add(mdv);
+                }
             }
+            return values;
+        }
+        Map<String, Map<String, Map<String, List<MDValue>>>> index = getMetadataIndex();
+        collectMetadata(index.get(schema), element, qualifier, lang, values);
+        if (schema != null) {
+            // values without a schema match any schema
+            collectMetadata(index.get(null), element, qualifier, lang, values);
         }
         return values;
     }
 
+    // adds values from the schema's index matching element, qualifier and language
+    private static void collectMetadata(Map<String, Map<String, List<MDValue>>> elements,
+                                        String element, String qualifier, String lang, List<MDValue> values) {
+        if (elements == null) {
+            return;
+        }
+        if (MDValue.ANY.equals(element)) {
+            for (Map<String, List<MDValue>> qualifiers : elements.values()) {
+                collectMetadata(qualifiers, qualifier, lang, values);
+            }
+        } else {
+            collectMetadata(elements.get(element), qualifier, lang, values);
+        }
+    }
+
+    private static void collectMetadata(Map<String, List<MDValue>> qualifiers,
+                                        String qualifier, String lang, List<MDValue> values) {
+        if (qualifiers == null) {
+            return;
+        }
+        if (MDValue.ANY.equals(qualifier)) {
+            for (List<MDValue> bucket : qualifiers.values()) {
+                collectMetadata(bucket, lang, values);
+            }
+        } else {
+            collectMetadata(qualifiers.get(qualifier), lang, values);
+        }
+    }
+
+    private static void collectMetadata(List<MDValue> bucket, String lang, List<MDValue> values) {
+        if (bucket == null) {
+            return;
+        }
+        for (MDValue mdv : bucket) {
+            if (lang == null ? mdv.getLanguage() == null : (MDValue.ANY.equals(lang) || lang.equals(mdv.getLanguage()))) {
+                values.add(mdv);
+            }
+        }
+    }
+
     /**
      * Retrieve metadata field values from a given metadata string
      * of the form <schema prefix>.<element>[.<qualifier>|.*]
@@ -202,13 +273,19 @@ public abstract class DSpaceObject
      *            <schema prefix>.<element>[.<qualifier>|.*]
      */
     public List<MDValue> getMetadata(String mdString) {
-        StringTokenizer dcf = new StringTokenizer(mdString, ".");
-
-        String[] tokens = { "", "", "" };
-        int i = 0;
-        while(dcf.hasMoreTokens()) {
-            tokens[i] = dcf.nextToken().trim();
-            i++;
+        String[] tokens = mdSpecs.get(mdString);
+        if (tokens == null) {
+            StringTokenizer dcf = new StringTokenizer(mdString, ".");
+
+            tokens = new String[] { "", "", "" };
+            int i = 0;
+            while(dcf.hasMoreTokens()) {
+                tokens[i] = dcf.nextToken().trim();
+                i++;
+            }
+            if (mdSpecs.size() < MAX_MD_SPECS) {
+                mdSpecs.put(mdString, tokens);
+            }
         }
         String schema = tokens[0];
         String element = tokens[1];
@@ -294,7 +371,11 @@ public abstract class DSpaceObject
             } else {
                 theValue = null;
             }
-            metadata.add(new MDValue(schema, element, qualifier, language, place, theValue));
+            MDValue mdv = new MDValue(schema, element, qualifier, language, place, theValue);
+            metadata.add(mdv);
+            if (mdIndex != null) {
+                indexMetadata(mdIndex, mdv);
+            }
         }
 
         if (values.size() > 0) {
@@ -337,6 +418,9 @@ public abstract class DSpaceObject
 
         // Now swap the old list of values for the new, unremoved values
         metadata = values;
+        if (mdIndex != null) {
+            mdIndex = buildMetadataIndex(values);
+        }
         modifiedMetadata = true;
     }
 
@@ -353,29 +437,30 @@ public abstract class DSpaceObject
 
     protected void updateMetadata() throws AuthorizeException, SQLException {
         if (modifiedMetadata) {
-            // Synchonize DB to in-memory MD values
-            List<MDValue> dbValues = new ArrayList<MDValue>();
-            loadMetadata(dbValues);
-            StringBuffer details = new StringBuffer();
-            int idx = 0;
-            // first pass - additions
-            for (MDValue addValue : metadata) {
-                if (! dbValues.contains(addValue)) {
-                    DatabaseManager.insert(context, createMetadataRow(addValue));
-                    String fieldName = addValue.getSchema() + "." + addValue.getElement() +
-                                       ((addValue.getQualifier() == null) ? "" : "." + addValue.getQualifier());
-                    if (idx++ > 0) {
-                        details.append(",");
-                    }
-                    details.append(fieldName);
-                }
+            // Diff in-memory MD values against persisted rows: each value claims
+            // one row of an equal persisted value, if any remain
+            Map<MDValue, List<Integer>> unclaimed = new HashMap<MDValue, List<Integer>>();
+            for (Map.Entry<MDValue, List<Integer>> entry : persistedMetadata.entrySet()) {
+                unclaimed.put(entry.getKey(), new ArrayList<Integer>(entry.getValue()));
             }
-            // second pass - deletions
-            for (MDValue delValue : dbValues) {
-                if (! metadata.contains(delValue)) {
-                    DatabaseManager.delete(context, createMetadataRow(delValue));
+            Map<MDValue, List<Integer>> persisted = new HashMap<MDValue, List<Integer>>();
+            List<MDValue> additions = new ArrayList<MDValue>();
+            for (MDValue mdv : metadata) {
+                List<Integer> rowIDs = unclaimed.get(mdv);
+                if (rowIDs != null && ! rowIDs.isEmpty()) {
+                    addPersisted(persisted, mdv, rowIDs.remove(rowIDs.size() - 1));
+                } else {
+                    additions.add(mdv);
                 }
             }
+            // unclaimed rows hold values no longer present
+            List<Integer> deletions = new ArrayList<Integer>();
+            for (List<Integer> rowIDs : unclaimed.values()) {
+                deletions.addAll(rowIDs);
+            }
+            deleteMetadataRows(deletions);
+            insertMetadataRows(additions, persisted);
+            persistedMetadata = persisted;
             //RLR - FIXME
             //context.addEvent(new Event(Event.MODIFY_METADATA, getType(), getID(), details.toString()));
             modifiedMetadata = false;
@@ -385,6 +470,9 @@ public abstract class DSpaceObject
     protected void deleteMetadata() throws AuthorizeException, SQLException {
         DatabaseManager.updateQuery(context, "DELETE FROM MetadataValue WHERE dso_id = ? ",
             getDSOiD());
+        if (persistedMetadata != null) {
+            persistedMetadata.clear();
+        }
     }
 
     /**
@@ -585,36 +673,55 @@ public abstract class DSpaceObject
     private List<MDValue> getMetadata() {
         if (metadata == null) {
             metadata = new ArrayList<MDValue>();
-            loadMetadata(metadata);
+            persistedMetadata = new HashMap<MDValue, List<Integer>>();
+            loadMetadata();
         }
         return metadata;
     }
 
-    private void loadMetadata(List<MDValue> mdList) {
+    // lazy build of metadata index
+    private Map<String, Map<String, Map<String, List<MDValue>>>> getMetadataIndex() {
+        if (mdIndex == null) {
+            mdIndex = buildMetadataIndex(getMetadata());
+        }
+        return mdIndex;
+    }
+
+    private static Map<String, Map<String, Map<String, List<MDValue>>>> buildMetadataIndex(List<MDValue> values) {
+        Map<String, Map<String, Map<String, List<MDValue>>>> index = new HashMap<String, Map<String, Map<String, List<MDValue>>>>();
+        for (MDValue mdv : values) {
+            indexMetadata(index, mdv);
+        }
+        return index;
+    }
+
+    // buckets preserve the order values were added in
+    private static void indexMetadata(Map<String, Map<String, Map<String, List<MDValue>>>> index, MDValue mdv) {
+        Map<String, Map<String, List<MDValue>>> elements = index.get(mdv.getSchema());
+        if (elements == null) {
+            elements = new LinkedHashMap<String, Map<String, List<MDValue>>>();
+            index.put(mdv.getSchema(), elements);
+        }
+        Map<String, List<MDValue>> qualifiers = elements.get(mdv.getElement());
+        if (qualifiers == null) {
+            qualifiers = new LinkedHashMap<String, List<MDValue>>(2);
+            elements.put(mdv.getElement(), qualifiers);
+        }
+        List<MDValue> bucket = qualifiers.get(mdv.getQualifier());
+        if (bucket == null) {
+            bucket = new ArrayList<MDValue>(2);
+            qualifiers.put(mdv.getQualifier(), bucket);
+        }
+        bucket.add(mdv);
+    }
+
+    private void loadMetadata() {
         TableRowIterator tri = null;
         try {
             tri = retrieveMetadata();
             if (tri != null) {
                 while (tri.hasNext()) {
-                    TableRow resultRow = tri.next();
-                    // Get the associated metadata field and schema information
-                    int fieldID = resultRow.getIntColumn("metadata_field_id");
-                    MetadataField field = MetadataField.find(context, fieldID);
-                    if (field == null) {
-                        log.error("Loading object - cannot find metadata field " + fieldID);
-                    } else {
-                        MetadataSchema schema = MetadataSchema.find(context, field.getSchemaID());
-                        if (schema == null) {
-                            log.error("Loading object - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
-                        } else {
-                            // Add MDValue object to list
-                            mdList.add(new MDValue(schema.getName(),
-                                                   field.getElement(),
-                                                   field.getQualifier(),
-                                                   resultRow.getStringColumn("text_lang"),
-                                                   resultRow.getStringColumn("text_value")));
-                        }
-                    }
+                    addMetadataRow(tri.next());
                 }
             }
         } catch (SQLException e)   {
@@ -627,25 +734,124 @@ public abstract class DSpaceObject
         }
     }
 
+    /**
+     * Supplies the metadata rows of this object, read in bulk together with
+     * those of other objects, unless its metadata is already loaded.
+     *
+     * @param rows
+     *            all MetadataValue rows of this object, in place order
+     */
+    void preloadMetadata(List<TableRow> rows) throws SQLException {
+        if (metadata == null) {
+            metadata = new ArrayList<MDValue>();
+            persistedMetadata = new HashMap<MDValue, List<Integer>>();
+            for (TableRow row : rows) {
+                addMetadataRow(row);
+            }
+        }
+    }
+
+    /**
+     * Supplies the handle of this object, read in bulk together with
+     * those of other objects. Objects which look up their handle
+     * lazily should retain it.
+     *
+     * @param handle
+     *            the handle of this object
+     */
+    void preloadHandle(String handle) {
+    }
+
+    private void addMetadataRow(TableRow resultRow) throws SQLException {
+        // Get the associated metadata field and schema information
+        int fieldID = resultRow.getIntColumn("metadata_field_id");
+        MetadataField field = MetadataField.find(context, fieldID);
+        if (field == null) {
+            log.error("Loading object - cannot find metadata field " + fieldID);
+        } else {
+            MetadataSchema schema = MetadataSchema.find(context, field.getSchemaID());
+            if (schema == null) {
+                log.error("Loading object - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
+            } else {
+                // Add MDValue object to list, and note its row
+                MDValue mdv = new MDValue(schema.getName(),
+                                          field.getElement(),
+                                          field.getQualifier(),
+                                          resultRow.getStringColumn("text_lang"),
+                                          resultRow.getStringColumn("text_value"));
+                metadata.add(mdv);
+                addPersisted(persistedMetadata, mdv, resultRow.getIntColumn("metadata_value_id"));
+            }
+        }
+    }
+
     private TableRowIterator retrieveMetadata() throws SQLException {
         return DatabaseManager.queryTable(context, "MetadataValue",
                 "SELECT * FROM MetadataValue WHERE dso_id= ? ORDER BY metadata_field_id, place",
                 getDSOiD());
     }
 
-    private TableRow createMetadataRow(MDValue value) throws SQLException, AuthorizeException {
+    private static void addPersisted(Map<MDValue, List<Integer>> persisted, MDValue mdv, Integer rowID) {
+        List<Integer> rowIDs = persisted.get(mdv);
+        if (rowIDs == null) {
+            rowIDs = new ArrayList<Integer>(1);
+            persisted.put(mdv, rowIDs);
+        }
+        rowIDs.add(rowID);
+    }
 
+    // removes metadata rows, many per statement
+    private void deleteMetadataRows(List<Integer> rowIDs) throws SQLException {
+        for (int start = 0; start < rowIDs.size(); start += METADATA_CHUNK) {
+            List<Integer> chunk = rowIDs.subList(start, Math.min(start + METADATA_CHUNK, rowIDs.size()));
+            StringBuilder sql = new StringBuilder("DELETE FROM MetadataValue WHERE metadata_value_id IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append((i > 0) ? ",?" : "?");
+            }
+            sql.append(")");
+            DatabaseManager.updateQuery(context, sql.toString(), chunk.toArray());
+        }
+    }
+
+    // writes metadata rows, many per statement, noting the new rows in persisted
+    private void insertMetadataRows(List<MDValue> values, Map<MDValue, List<Integer>> persisted)
+            throws SQLException, AuthorizeException {
+        for (int start = 0; start < values.size(); start += METADATA_CHUNK) {
+            List<MDValue> chunk = values.subList(start, Math.min(start + METADATA_CHUNK, values.size()));
+            // IDs are reserved as DatabaseManager assigns them, and bound with the values
+            List<Integer> rowIDs = DatabaseManager.reserveIds(context, "metadatavalue", chunk.size());
+            StringBuilder sql = new StringBuilder("INSERT INTO MetadataValue " +
+                    "(metadata_value_id, dso_id, metadata_field_id, text_value, text_lang, place) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append((i > 0) ? "," : "").append("(?, ?, ?, ?, ?, ?)");
+            }
+            Update insert = context.getHandle().createStatement(sql.toString());
+            int pos = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                MDValue mdv = chunk.get(i);
+                insert.bind(pos++, rowIDs.get(i).intValue())
+                      .bind(pos++, getDSOiD())
+                      .bind(pos++, metadataFieldID(mdv))
+                      .bind(pos++, mdv.getValue())
+                      .bind(pos++, mdv.getLanguage())
+                      .bind(pos++, mdv.getPlace());
+            }
+            insert.execute();
+            for (int i = 0; i < chunk.size(); i++) {
+                addPersisted(persisted, chunk.get(i), rowIDs.get(i));
+            }
+        }
+    }
+
+    private int metadataFieldID(MDValue value) throws SQLException, AuthorizeException {
         MetadataSchema schema = MetadataSchema.find(context, value.getSchema());
-        MetadataField field = MetadataField.findByElement(context, schema.getSchemaID(),
+        MetadataField field = (schema == null) ? null :
+                              MetadataField.findByElement(context, schema.getSchemaID(),
                                                           value.getElement(), value.getQualifier());
-
-        // Create a table row and update it with the values
-        TableRow row = DatabaseManager.row("MetadataValue");
-        row.setColumn("dso_id", getDSOiD());
-        row.setColumn("metadata_field_id", field.getFieldID());
-        row.setColumn("text_value", value.getValue());
-        row.setColumn("text_lang", value.getLanguage());
-        row.setColumn("place", value.getPlace());
-        return row;
+        if (field == null) {
+            throw new SQLException("bad metadata field schema=" + value.getSchema() + ", element=" +
+                                   value.getElement() + ", qualifier=" + value.getQualifier());
+        }
+        return field.getFieldID();
     }
 }
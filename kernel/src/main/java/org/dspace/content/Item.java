@@ -77,8 +77,7 @@ public class Item extends DSpaceObject
         this.context = context;
         tableRow = row;
 
-        // Get our Handle if any
-        handle = HandleManager.findHandle(context, this);
+        // Handle is looked up on first use, unless preloaded
 
         // Cache ourselves
         context.cache(this, row.getIntColumn("item_id"));
@@ -162,6 +161,21 @@ public class Item extends DSpaceObject
         return new BoundedIterator<Item>(context, rows);
     }
 
+    /**
+     * Get the archived items with IDs in a range, in ID order.
+     *
+     * @param context DSpace context object
+     * @param fromID the lowest item ID, inclusive
+     * @param toID the highest item ID, exclusive
+     * @return an iterator over the items in the range
+     * @throws SQLException
+     */
+    public static BoundedIterator<Item> findAll(Context context, int fromID, int toID) throws SQLException {
+        String myQuery = "SELECT * FROM item WHERE in_archive='1' AND item_id >= ? AND item_id < ? ORDER BY item_id";
+        TableRowIterator rows = DatabaseManager.queryTable(context, "item", myQuery, fromID, toID);
+        return new BoundedIterator<Item>(context, rows);
+    }
+
     /**
      * Get the internal ID of this item. In general, this shouldn't be exposed
      * to users
@@ -173,6 +187,13 @@ public class Item extends DSpaceObject
         return tableRow.getIntColumn("item_id");
     }
 
+    @Override
+    void preloadHandle(String handle) {
+        if (this.handle == null) {
+            this.handle = handle;
+        }
+    }
+
     /**
      * @see org.dspace.content.DSpaceObject#getHandle()
      */
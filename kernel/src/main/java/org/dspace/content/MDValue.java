@@ -137,4 +137,9 @@ public final class MDValue
     		   Objects.equal(this.place, mdValue.place) &&
     		   Objects.equal(this.value, mdValue.value));
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(schema, element, qualifier, language, place, value);
+    }
 }
@@ -12,9 +12,10 @@ import java.sql.SQLException;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.skife.jdbi.v2.Query;
 import org.skife.jdbi.v2.StatementContext;
@@ -56,10 +57,13 @@ public class MetadataField {
     public static final ResultSetMapper<MetadataField> MAPPER = new Mapper();
 
     // cache of field by ID (Integer)
-    private static Map<Integer, MetadataField> id2field = new HashMap<>();
+    private static Map<Integer, MetadataField> id2field = new ConcurrentHashMap<>();
+
+    // cache of field by schema ID, element and qualifier
+    private static Map<FieldKey, MetadataField> key2field = new ConcurrentHashMap<>();
 
      // cache initialization flag
-    private static boolean cacheInitialized = false;
+    private static volatile boolean cacheInitialized = false;
 
 
     /**
@@ -224,28 +228,45 @@ public class MetadataField {
         row.setColumn("qualifier", qualifier);
         row.setColumn("scope_note", scopeNote);
         DatabaseManager.insert(context, row);
-        cache(this);
 
         // Remember the new row number
         this.fieldID = row.getIntColumn("metadata_field_id");
+        cache(this);
 
         log.info(LogManager.getHeader(context, "create_metadata_field",
                 "metadata_field_id=" + row.getIntColumn("metadata_field_id")));
     }
 
     /**
-     * Retrieves the metadata field from the database.
+     * Retrieves the metadata field from the registry cache, or the database
+     * if not cached.
      *
      * @param context dspace context
      * @param schemaID schema by ID
      * @param element element name
-     * @param qualifier qualifier (may be ANY or null)
+     * @param qualifier qualifier (may be null)
      * @return recalled metadata field
      * @throws SQLException
      * @throws AuthorizeException
      */
     public static MetadataField findByElement(Context context, int schemaID,
             String element, String qualifier) throws SQLException, AuthorizeException {
+        if (! cacheInitialized) {
+            initCache(context);
+        }
+        MetadataField field = key2field.get(new FieldKey(schemaID, element, qualifier));
+        if (field == null) {
+            // may have been added by another process
+            field = retrieveByElement(context, schemaID, element, qualifier);
+            if (field != null) {
+                cache(field);
+            }
+        }
+        return field;
+    }
+
+    private static MetadataField retrieveByElement(Context context, int schemaID,
+            String element, String qualifier) throws SQLException {
         StringBuilder query = new StringBuilder("SELECT * FROM ");
         query.append(TABLE_NAME).append(" WHERE metadata_schema_id = ? AND element = ? AND qualifier ");
         if (qualifier == null) {
@@ -328,7 +349,7 @@ public class MetadataField {
         }
 
          context.getHandle()
-        .createStatement("UPDATE " + TABLE_NAME + " SET metadata_schema_id = ?, element = ?, qualifier = ?, scope_note = ? WHERE metadata_schema_id = ?")
+        .createStatement("UPDATE " + TABLE_NAME + " SET metadata_schema_id = ?, element = ?, qualifier = ?, scope_note = ? WHERE metadata_field_id = ?")
         .bind(0, schemaID).bind(1, element).bind(2, qualifier).bind(3, scopeNote).bind(4, fieldID).execute();
 
         cache(this);
@@ -423,25 +444,67 @@ public class MetadataField {
     }
 
     // set a value in the cache e.g. after something modifies DB state.
-    private static void cache(MetadataField mdf) {
+    private static synchronized void cache(MetadataField mdf) {
+        decache(mdf);
         id2field.put(mdf.fieldID, mdf);
+        key2field.put(new FieldKey(mdf.schemaID, mdf.element, mdf.qualifier), mdf);
     }
 
     // remove a value from the cache e.g. after something modifies DB state.
-    private static void decache(MetadataField mdf) {
+    private static synchronized void decache(MetadataField mdf) {
         id2field.remove(mdf.fieldID);
+        // the field may be cached under its former element or qualifier
+        Iterator<MetadataField> iter = key2field.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().fieldID == mdf.fieldID) {
+                iter.remove();
+            }
+        }
     }
     
     // load caches if necessary
     private static synchronized void initCache(Context context) throws SQLException {
+        if (cacheInitialized) {
+            return;
+        }
         log.info("Loading MetadataField elements into cache.");
 
         for (MetadataField mdf : findAll(context)) {
-            cache(mdf);
+            id2field.put(mdf.fieldID, mdf);
+            key2field.put(new FieldKey(mdf.schemaID, mdf.element, mdf.qualifier), mdf);
         }
         cacheInitialized = true;
     }
 
+    // identity of a field within a schema
+    private static final class FieldKey {
+        private final int schemaID;
+        private final String element;
+        private final String qualifier;
+
+        FieldKey(int schemaID, String element, String qualifier) {
+            this.schemaID = schemaID;
+            this.element = element;
+            this.qualifier = qualifier;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (! (obj instanceof FieldKey)) {
+                return false;
+            }
+            FieldKey other = (FieldKey)obj;
+            return schemaID == other.schemaID &&
+                   Objects.equals(element, other.element) &&
+                   Objects.equals(qualifier, other.qualifier);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(schemaID, element, qualifier);
+        }
+    }
+
     /**
      * Return <code>true</code> if <code>other</code> is the same MetadataField
      * as this object, <code>false</code> otherwise
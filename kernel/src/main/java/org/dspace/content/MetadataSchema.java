@@ -9,11 +9,11 @@ package org.dspace.content;
 
 import java.sql.SQLException;
 import java.sql.ResultSet;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.skife.jdbi.v2.StatementContext;
 import org.skife.jdbi.v2.tweak.ResultSetMapper;
@@ -63,13 +63,13 @@ public class MetadataSchema
     private String name;
 
     // cache of schema by ID (Integer)
-    private static Map<Integer, MetadataSchema> id2schema = new HashMap<>();
+    private static Map<Integer, MetadataSchema> id2schema = new ConcurrentHashMap<>();
 
     // cache of schema by short name
-    private static Map<String, MetadataSchema> name2schema = new HashMap<>();
+    private static Map<String, MetadataSchema> name2schema = new ConcurrentHashMap<>();
 
     // cache initialization flag
-    private static boolean cacheInitialized = false;
+    private static volatile boolean cacheInitialized = false;
 
     /**
      * Default constructor.
@@ -370,6 +370,9 @@ public class MetadataSchema
 
     // load caches if necessary
     private static synchronized void initCache(Context context) throws SQLException {
+        if (cacheInitialized) {
+            return;
+        }
         log.info("Loading schema cache for fast finds");
            
         for (MetadataSchema mds : findAll(context)) {
@@ -378,12 +381,12 @@ public class MetadataSchema
         cacheInitialized = true;
     }
 
-    private static void cache(MetadataSchema mds) {
+    private static synchronized void cache(MetadataSchema mds) {
         id2schema.put(mds.schemaID, mds);
         name2schema.put(mds.name, mds);
     }
 
-    private static void decache(MetadataSchema mds) {
+    private static synchronized void decache(MetadataSchema mds) {
         id2schema.remove(mds.schemaID);
         name2schema.remove(mds.name);
     }
@@ -11,10 +11,12 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import org.skife.jdbi.v2.Handle;
@@ -22,6 +24,8 @@ import org.skife.jdbi.v2.Handle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.dspace.authorize.AuthorizationCache;
+import org.dspace.authorize.ResourcePolicy;
 import org.dspace.content.DSpaceObject;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.eperson.EPerson;
@@ -31,6 +35,7 @@ import org.dspace.event.ContainerEvent;
 import org.dspace.event.ContentEvent;
 import org.dspace.event.ContentEvent.EventType;
 import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.StatementCache;
 
 /**
  * Class representing the context of a particular DSpace operation. This stores
@@ -49,7 +54,11 @@ import org.dspace.storage.rdbms.DatabaseManager;
  */
 public class Context implements AutoCloseable {
 
-    /** option flags */
+    /**
+     * option flags. A READ_ONLY context runs without a transaction, on a
+     * connection from the read pool if one is configured, and does not
+     * cache objects.
+     */
     public static final short READ_ONLY = 0x01;
 
     private static final Logger log = LoggerFactory.getLogger(Context.class);
@@ -57,6 +66,9 @@ public class Context implements AutoCloseable {
     /** Database handle */
     private Handle handle;
 
+    /** Prepared statements of the handle's connection */
+    private StatementCache statementCache;
+
     /** Current user - null means anonymous access */
     private EPerson currentUser;
 
@@ -79,14 +91,26 @@ public class Context implements AutoCloseable {
     private Stack<String> authStateClassCallHistory;
 
     /** Object cache for this context */
-    private Map<String, Object> objectCache;
+    private ObjectCache objectCache;
+
+    /**
+     * Prefetched resource policies, keyed by object type and ID, and bounded
+     * like the object cache: the least recently used are evicted
+     */
+    private Map<Long, List<ResourcePolicy>> policyCache;
 
     /** Group IDs of special groups user is a member of */
     private List<Integer> specialGroups;
 
+    /** Memoized IDs of all groups current user is a member of (incl. special groups) */
+    private Set<Integer> groupMemberships;
+
     /** Content events */
     private List<ContentEvent> events = null;
 
+    /** Objects whose policies (or all, -1, if groups) changed in the current transaction, as packed type and ID */
+    private Set<Long> authorizationChanges = null;
+
     /** Options */
     private short options = 0;
 
@@ -120,16 +144,30 @@ public class Context implements AutoCloseable {
 
     private void init() throws SQLException
     {
-        // Obtain a non-auto-committing connection
-        handle = DatabaseManager.getHandle();
-        handle.getConnection().setAutoCommit(false);
+        if (isReadOnly()) {
+            // Obtain an auto-committing connection, from the read pool if any
+            handle = DatabaseManager.getReadHandle();
+        } else {
+            // Obtain a non-auto-committing connection
+            handle = DatabaseManager.getHandle();
+            handle.getConnection().setAutoCommit(false);
+        }
+        statementCache = new StatementCache();
+        handle.setStatementBuilder(statementCache);
 
         currentUser = null;
         currentLocale = I18nUtil.DEFAULTLOCALE;
         extraLogInfo = "";
         ignoreAuth = false;
 
-        objectCache = new HashMap<String, Object>();
+        objectCache = new ObjectCache();
+        policyCache = new LinkedHashMap<Long, List<ResourcePolicy>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<ResourcePolicy>> eldest) {
+                int limit = objectCache.getLimit();
+                return limit > 0 && size() > limit;
+            }
+        };
         specialGroups = new ArrayList<Integer>();
 
         authStateChangeHistory = new Stack<Boolean>();
@@ -145,6 +183,16 @@ public class Context implements AutoCloseable {
         return handle;
     }
 
+    /**
+     * Get the cache of prepared statements of the database handle.
+     * Statements are closed when the handle is released.
+     *
+     * @return the statement cache
+     */
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
     /**
      * Set the current user. Authentication must have been performed by the
      * caller - this call does not attempt any authentication.
@@ -155,6 +203,7 @@ public class Context implements AutoCloseable {
      */
     public void setCurrentUser(EPerson user) {
         currentUser = user;
+        groupMemberships = null;
     }
 
     /**
@@ -356,9 +405,41 @@ public class Context implements AutoCloseable {
             }
         } finally {
             events = null;
+            if (authorizationChanges != null) {
+                // other contexts may have cached decisions on the policies committed before
+                Set<Long> changes = authorizationChanges;
+                authorizationChanges = null;
+                AuthorizationCache.committed(changes);
+            }
         }
     }
 
+    /**
+     * Record that policies on an object, or group memberships, changed in
+     * the current transaction.
+     *
+     * @param type
+     *            type of object, or -1 if any authorization may have changed
+     * @param id
+     *            ID of object, or -1 if any authorization may have changed
+     */
+    public void authorizationChanged(int type, int id) {
+        if (authorizationChanges == null) {
+            authorizationChanges = new HashSet<Long>();
+        }
+        authorizationChanges.add(policyKey(type, id));
+    }
+
+    /**
+     * Reports whether policies or group memberships changed in the current
+     * transaction, so that authorization decisions made in it may be undone.
+     *
+     * @return <code>true</code> if uncommitted authorization changes exist
+     */
+    public boolean hasAuthorizationChanges() {
+        return authorizationChanges != null;
+    }
+
     /**
      * Add a content event to be dispatched when this context is committed.
      *
@@ -435,6 +516,7 @@ public class Context implements AutoCloseable {
             }
             handle = null;
             events = null;
+            authorizationChanges = null;
             clearCache();
         }
     }
@@ -474,8 +556,7 @@ public class Context implements AutoCloseable {
      *         cached.
      */
     public Object fromCache(Class<?> objectClass, int id) {
-        String key = objectClass.getName() + id;
-        return objectCache.get(key);
+        return objectCache.get(objectClass, id);
     }
 
     /**
@@ -489,7 +570,7 @@ public class Context implements AutoCloseable {
     public void cache(Object o, int id) {
         // bypass cache if in read-only mode
         if (! isReadOnly()) {
-            objectCache.put(o.getClass().getName() + id, o);
+            objectCache.put(o, id);
         }
     }
 
@@ -502,8 +583,7 @@ public class Context implements AutoCloseable {
      *            the object's ID
      */
     public void removeCached(Object o, int id)  {
-        String key = o.getClass().getName() + id;
-        objectCache.remove(key);
+        objectCache.remove(o.getClass(), id);
     }
 
     /**
@@ -511,6 +591,48 @@ public class Context implements AutoCloseable {
      */
     public void clearCache() {
         objectCache.clear();
+        policyCache.clear();
+    }
+
+    /**
+     * Get the prefetched policies of an object.
+     *
+     * @param type
+     *            type of object
+     * @param id
+     *            ID of object
+     *
+     * @return the complete list of policies on the object, or <code>null</code>
+     *         if they have not been prefetched.
+     */
+    public List<ResourcePolicy> getCachedPolicies(int type, int id) {
+        return policyCache.get(policyKey(type, id));
+    }
+
+    /**
+     * Store the complete list of policies of an object, as prefetched
+     * by <code>AuthorizeManager.prefetchPolicies</code>.
+     *
+     * @param type
+     *            type of object
+     * @param id
+     *            ID of object
+     * @param policies
+     *            all policies on the object, possibly empty
+     */
+    public void cachePolicies(int type, int id, List<ResourcePolicy> policies) {
+        policyCache.put(policyKey(type, id), policies);
+    }
+
+    /**
+     * Discard all prefetched policies, e.g. when any policy changes.
+     */
+    public void clearCachedPolicies() {
+        policyCache.clear();
+    }
+
+    private static Long policyKey(int type, int id) {
+        return Long.valueOf(((long)type << 32) | (id & 0xffffffffL));
     }
 
     /**
@@ -528,6 +650,31 @@ public class Context implements AutoCloseable {
         return objectCache.size();
     }
 
+    /**
+     * Bound the object cache: once it holds the passed number of objects,
+     * the least recently used are evicted. Objects already cached beyond
+     * the bound are evicted at once. Prefetched policies are bounded alike.
+     *
+     * @param limit
+     *            maximum number of cached objects, 0 for no bound
+     */
+    public void setCacheLimit(int limit) {
+        objectCache.setLimit(limit);
+        if (limit > 0 && policyCache.size() > limit) {
+            policyCache.clear();
+        }
+    }
+
+    /**
+     * Get the object cache, e.g. to report its hits, misses and evictions
+     * over the life of this context.
+     *
+     * @return the object cache
+     */
+    public ObjectCache getObjectCache() {
+        return objectCache;
+    }
+
     /**
      * set membership in a special group
      *
@@ -536,6 +683,7 @@ public class Context implements AutoCloseable {
      */
     public void setSpecialGroup(int groupID) {
         specialGroups.add(Integer.valueOf(groupID));
+        groupMemberships = null;
 
         // System.out.println("Added " + groupID);
     }
@@ -557,6 +705,15 @@ public class Context implements AutoCloseable {
         return false;
     }
 
+    /**
+     * test if current user is a member of any special group
+     *
+     * @return true if member of at least one special group
+     */
+    public boolean hasSpecialGroups() {
+        return ! specialGroups.isEmpty();
+    }
+
     /**
      * gets an array of all of the special groups that current user is a member
      * of
@@ -574,6 +731,37 @@ public class Context implements AutoCloseable {
         return myGroups.toArray(new Group[myGroups.size()]);
     }
 
+    /**
+     * Returns the memoized set of IDs of all groups the current user
+     * is a member of, directly, via subgroups, or as special groups.
+     *
+     * @return set of group IDs, or <code>null</code> if not yet computed
+     *         or invalidated since last computed
+     */
+    public Set<Integer> getGroupMemberships() {
+        return groupMemberships;
+    }
+
+    /**
+     * Memoizes the set of IDs of all groups the current user is a member of.
+     * The set is discarded whenever the current user, the special groups,
+     * or group membership in this context changes.
+     *
+     * @param groupIDs
+     *            the full membership closure of the current user
+     */
+    public void setGroupMemberships(Set<Integer> groupIDs) {
+        groupMemberships = groupIDs;
+    }
+
+    /**
+     * Discard any memoized group memberships, forcing them to be recomputed
+     * on next use.
+     */
+    public void clearGroupMemberships() {
+        groupMemberships = null;
+    }
+
     protected void finalize() throws Throwable {
         /*
          * If a context is garbage-collected, we roll back and free up the
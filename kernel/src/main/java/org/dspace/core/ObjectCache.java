@@ -0,0 +1,344 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.lang.ref.SoftReference;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * ObjectCache holds the objects a Context has instantiated, by class and
+ * integer ID. Each class has its own table keyed by primitive int, so lookups
+ * allocate nothing. The cache may be bounded, in which case the least
+ * recently used objects (of any class) are evicted once the bound is reached,
+ * and may hold objects through soft references, so that the garbage collector
+ * can reclaim them under memory pressure.
+ * <p>
+ * Not thread-safe: like its Context, an ObjectCache is meant for one thread.
+ * <p>
+ * Configuration (kernel.cfg):
+ * <ul>
+ * <li>context.cache.size - default maximum number of objects, 0 for no bound (default 0)</li>
+ * <li>context.cache.soft - hold objects through soft references (default false)</li>
+ * </ul>
+ */
+public class ObjectCache {
+
+    private static final int defaultLimit = ConfigurationManager.getIntProperty("context.cache.size", 0);
+
+    private static final boolean defaultSoft = ConfigurationManager.getBooleanProperty("context.cache.soft", false);
+
+    // per-class tables
+    private final Map<Class<?>, Table> tables = new IdentityHashMap<Class<?>, Table>();
+
+    // most and least recently used entries, over all tables
+    private Entry head;
+    private Entry tail;
+
+    private final boolean soft;
+    private int limit;
+    private int size;
+
+    // statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a cache with configured bound and reference mode.
+     */
+    public ObjectCache() {
+        this(defaultLimit, defaultSoft);
+    }
+
+    /**
+     * Constructs a cache with passed bound and reference mode.
+     *
+     * @param limit maximum number of objects, 0 for no bound
+     * @param soft if true, hold objects through soft references
+     */
+    public ObjectCache(int limit, boolean soft) {
+        this.limit = limit;
+        this.soft = soft;
+    }
+
+    /**
+     * Returns the cached object of passed class and ID, or null if none.
+     *
+     * @param objectClass the class of the object
+     * @param id the ID of the object
+     * @return the object or null
+     */
+    public Object get(Class<?> objectClass, int id) {
+        Table table = tables.get(objectClass);
+        Entry entry = (table != null) ? table.find(id) : null;
+        if (entry != null) {
+            Object value = entry.value();
+            if (value != null) {
+                hits++;
+                moveToHead(entry);
+                return value;
+            }
+            // reclaimed by the garbage collector
+            remove(table, entry);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches an object under its class and passed ID,
+     * replacing any object cached there.
+     *
+     * @param o the object
+     * @param id the ID of the object
+     */
+    public void put(Object o, int id) {
+        Table table = tables.get(o.getClass());
+        if (table == null) {
+            table = new Table();
+            tables.put(o.getClass(), table);
+        }
+        Entry entry = table.find(id);
+        if (entry != null) {
+            entry.setValue(o, soft);
+            moveToHead(entry);
+            return;
+        }
+        entry = new Entry(table, id);
+        entry.setValue(o, soft);
+        table.add(entry);
+        linkAtHead(entry);
+        size++;
+        if (limit > 0) {
+            while (size > limit) {
+                remove(tail.table, tail);
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Removes the object of passed class and ID, if cached.
+     *
+     * @param objectClass the class of the object
+     * @param id the ID of the object
+     */
+    public void remove(Class<?> objectClass, int id) {
+        Table table = tables.get(objectClass);
+        Entry entry = (table != null) ? table.find(id) : null;
+        if (entry != null) {
+            remove(table, entry);
+        }
+    }
+
+    /**
+     * Removes all objects. Statistics are retained.
+     */
+    public void clear() {
+        tables.clear();
+        head = tail = null;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of objects cached, including any soft references
+     * which may since have been reclaimed.
+     *
+     * @return the number of objects
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the maximum number of objects, evicting the least recently
+     * used objects if already exceeded.
+     *
+     * @param limit maximum number of objects, 0 for no bound
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+        if (limit > 0) {
+            while (size > limit) {
+                remove(tail.table, tail);
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum number of objects.
+     *
+     * @return maximum number of objects, 0 if unbounded
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups not answered from the cache.
+     *
+     * @return number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of objects evicted by the bound,
+     * or reclaimed by the garbage collector.
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size + ",limit=" + limit + ",hits=" + hits +
+               ",misses=" + misses + ",evictions=" + evictions;
+    }
+
+    private void remove(Table table, Entry entry) {
+        table.delete(entry);
+        unlink(entry);
+        size--;
+    }
+
+    private void linkAtHead(Entry entry) {
+        entry.before = null;
+        entry.after = head;
+        if (head != null) {
+            head.before = entry;
+        }
+        head = entry;
+        if (tail == null) {
+            tail = entry;
+        }
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.before != null) {
+            entry.before.after = entry.after;
+        } else {
+            head = entry.after;
+        }
+        if (entry.after != null) {
+            entry.after.before = entry.before;
+        } else {
+            tail = entry.before;
+        }
+        entry.before = entry.after = null;
+    }
+
+    private void moveToHead(Entry entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkAtHead(entry);
+        }
+    }
+
+    // a cached object, chained within its table bucket, and within the recency list
+    private static final class Entry {
+        private final Table table;
+        private final int id;
+        private Object ref;
+        private boolean softRef;
+        private Entry next;
+        private Entry before;
+        private Entry after;
+
+        Entry(Table table, int id) {
+            this.table = table;
+            this.id = id;
+        }
+
+        Object value() {
+            return softRef ? ((SoftReference<?>)ref).get() : ref;
+        }
+
+        void setValue(Object value, boolean soft) {
+            this.softRef = soft;
+            this.ref = soft ? new SoftReference<Object>(value) : value;
+        }
+    }
+
+    // int-keyed hash table of the entries of one class
+    private static final class Table {
+        private Entry[] buckets = new Entry[16];
+        private int count;
+
+        Entry find(int id) {
+            Entry entry = buckets[index(id, buckets.length)];
+            while (entry != null && entry.id != id) {
+                entry = entry.next;
+            }
+            return entry;
+        }
+
+        void add(Entry entry) {
+            if (count >= buckets.length * 3 / 4) {
+                resize();
+            }
+            int idx = index(entry.id, buckets.length);
+            entry.next = buckets[idx];
+            buckets[idx] = entry;
+            count++;
+        }
+
+        void delete(Entry entry) {
+            int idx = index(entry.id, buckets.length);
+            Entry prev = null;
+            for (Entry cur = buckets[idx]; cur != null; prev = cur, cur = cur.next) {
+                if (cur == entry) {
+                    if (prev == null) {
+                        buckets[idx] = cur.next;
+                    } else {
+                        prev.next = cur.next;
+                    }
+                    entry.next = null;
+                    count--;
+                    return;
+                }
+            }
+        }
+
+        private void resize() {
+            Entry[] old = buckets;
+            buckets = new Entry[old.length * 2];
+            for (Entry head : old) {
+                Entry entry = head;
+                while (entry != null) {
+                    Entry next = entry.next;
+                    int idx = index(entry.id, buckets.length);
+                    entry.next = buckets[idx];
+                    buckets[idx] = entry;
+                    entry = next;
+                }
+            }
+        }
+
+        private static int index(int id, int length) {
+            // spread sequential IDs
+            int h = id * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (length - 1);
+        }
+    }
+}
@@ -67,7 +67,7 @@ public abstract class AbstractCurationTask implements CurationTask {
             if (Constants.ITEM == type) {
                 performItem((Item)dso);
             } else if (Constants.COLLECTION == type)  {
-                itIter = ((Collection)dso).getItems();
+                itIter = ((Collection)dso).getItems().preload(BoundedIterator.PRELOAD_CHUNK, true);
                 while (itIter.hasNext()) {
                     performItem(itIter.next());
                 }
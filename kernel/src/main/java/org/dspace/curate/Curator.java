@@ -271,8 +271,9 @@ public class Curator implements Curation
     /**
      * Sets an upper limit for the number of objects in the context cache 
      * used in a curation, if context accessible. Note that for many forms of
-     * invocation, the context is not accessible. If limit is reached,
-     * context cache will be emptied. The default is no limit.
+     * invocation, the context is not accessible. Once the limit is reached,
+     * the least recently used objects are evicted from the context cache.
+     * The default is no limit.
      *
      * @param limit the maximum number of objects to allow in the cache
      * @return this curator - to support concatenating invocation style
@@ -732,7 +733,7 @@ public class Curator implements Curation
         if (! tr.run(coll)) {
             return false;
         }
-        try (BoundedIterator<Item> iter = coll.getItems()) {
+        try (BoundedIterator<Item> iter = coll.getItems().preload(BoundedIterator.PRELOAD_CHUNK, true)) {
             while (iter.hasNext()) {
                 if (! tr.run(iter.next())) {
                     return false;
@@ -752,8 +753,9 @@ public class Curator implements Curation
             if (txScope.equals(TxScope.OBJECT)) {
                 curCtx.commit();
             }
-            if (curCtx.getCacheSize() % cacheLimit == 0) {
-                curCtx.clearCache();
+            if (cacheLimit < Integer.MAX_VALUE) {
+                // bound the cache, evicting least recently used objects
+                curCtx.setCacheLimit(cacheLimit);
             }
         }
     }
@@ -16,17 +16,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.skife.jdbi.v2.PreparedBatch;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Objects;
 
+import org.dspace.authorize.AuthorizationCache;
 import org.dspace.authorize.AuthorizeConfiguration;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
@@ -51,6 +57,13 @@ public class Group extends DSpaceObject
     /** log4j logger */
     private static Logger log = LoggerFactory.getLogger(Group.class);
 
+    /** maximum number of group IDs in a single group cache query */
+    private static final int GROUP_CHUNK = 500;
+
+    // metrics counters for memoized membership lookups
+    private static final Counter membershipHits = ConfigurationManager.metrics.counter(MetricRegistry.name(Group.class, "membership-cache-hits"));
+    private static final Counter membershipMisses = ConfigurationManager.metrics.counter(MetricRegistry.name(Group.class, "membership-cache-misses"));
+
     /** lists of epeople and groups in the group */
     private List<EPerson> epeople = new ArrayList<EPerson>();
 
@@ -254,6 +267,7 @@ public class Group extends DSpaceObject
 
         epeople.add(e);
         epeopleChanged = true;
+        context.clearGroupMemberships();
 
         context.addContainerEvent(this, EventType.ADD, e);
     }
@@ -276,6 +290,7 @@ public class Group extends DSpaceObject
 
         groups.add(g);
         groupsChanged = true;
+        context.clearGroupMemberships();
 
         context.addContainerEvent(this, EventType.ADD, g);
     }
@@ -293,6 +308,7 @@ public class Group extends DSpaceObject
         if (epeople.remove(e))
         {
             epeopleChanged = true;
+            context.clearGroupMemberships();
             context.addContainerEvent(this, EventType.REMOVE, e);
         }
     }
@@ -309,6 +325,7 @@ public class Group extends DSpaceObject
         if (groups.remove(g))
         {
             groupsChanged = true;
+            context.clearGroupMemberships();
             context.addContainerEvent(this, EventType.REMOVE, g);
         }
     }
@@ -349,9 +366,10 @@ public class Group extends DSpaceObject
     }
 
     /**
-     * fast check to see if an eperson is a member called with eperson id, does
-     * database lookup without instantiating all of the epeople objects and is
-     * thus a static method
+     * fast check to see if the current user is a member of a group. The full
+     * set of groups the current user belongs to is computed once and memoized
+     * in the context, so repeated checks (e.g. one per resource policy) need
+     * no further database lookups.
      *
      * @param c
      *            context
@@ -366,9 +384,7 @@ public class Group extends DSpaceObject
             return true;
         }
 
-        EPerson currentuser = c.getCurrentUser();
-
-        return epersonInGroup(c, groupid, currentuser);
+        return currentMemberGroupIDs(c).contains(Integer.valueOf(groupid));
     }
 
     /**
@@ -646,12 +662,31 @@ public class Group extends DSpaceObject
         return epeopleIDs;
     }
 
-    private static boolean epersonInGroup(Context c, int groupID, EPerson e)
+    /**
+     * Get the IDs of all groups the current user of the context is a member
+     * of, using the memoized set in the context when available.
+     *
+     * @param c
+     *          DSpace context
+     * @return Set of Integer groupIDs
+     * @throws SQLException
+     */
+    private static Set<Integer> currentMemberGroupIDs(Context c)
             throws SQLException
     {
-        Set<Integer> groupIDs = Group.allMemberGroupIDs(c, e);
+        Set<Integer> groupIDs = c.getGroupMemberships();
 
-        return groupIDs.contains(Integer.valueOf(groupID));
+        if (groupIDs != null)
+        {
+            membershipHits.inc();
+            return groupIDs;
+        }
+
+        membershipMisses.inc();
+        groupIDs = Group.allMemberGroupIDs(c, c.getCurrentUser());
+        c.setGroupMemberships(groupIDs);
+
+        return groupIDs;
     }
 
     /**
@@ -939,6 +974,8 @@ public class Group extends DSpaceObject
 
         // Remove from cache
         context.removeCached(this, getID());
+        context.clearGroupMemberships();
+        AuthorizationCache.invalidateAll(context);
 
         // Remove any ResourcePolicies that reference this group
         AuthorizeManager.removeGroupPolicies(context, getID());
@@ -948,6 +985,9 @@ public class Group extends DSpaceObject
                 "DELETE FROM EPersonGroup2EPerson WHERE eperson_group_id= ? ",
                 getID());
 
+        // groups we were a subgroup of lose descendants reachable only through us
+        Set<Integer> ancestors = getAncestorIDs(context, getID());
+
         // remove any group2groupcache entries
         DatabaseManager.updateQuery(context,
                 "DELETE FROM group2groupcache WHERE parent_id= ? OR child_id= ? ",
@@ -958,6 +998,8 @@ public class Group extends DSpaceObject
                 "DELETE FROM group2group WHERE parent_id= ? OR child_id= ? ",
                 getID(),getID());
 
+        updateGroupCache(context, ancestors);
+
         // don't forget the new table
         deleteEpersonGroup2WorkspaceItem();
 
@@ -1049,19 +1091,20 @@ public class Group extends DSpaceObject
                     getID());
 
             // Add new mappings
-            Iterator<EPerson> i = epeople.iterator();
+            List<TableRow> mappingRows = new ArrayList<TableRow>(epeople.size());
 
-            while (i.hasNext())
+            for (EPerson e : epeople)
             {
-                EPerson e = i.next();
-
                 TableRow mappingRow = DatabaseManager.row("epersongroup2eperson");
                 mappingRow.setColumn("eperson_id", e.getID());
                 mappingRow.setColumn("eperson_group_id", getID());
-                DatabaseManager.insert(context, mappingRow);
+                mappingRows.add(mappingRow);
             }
+            DatabaseManager.insertBatch(context, mappingRows);
 
             epeopleChanged = false;
+            context.clearGroupMemberships();
+            AuthorizationCache.invalidateAll(context);
         }
 
         // Redo Group mappings if they've changed
@@ -1073,21 +1116,18 @@ public class Group extends DSpaceObject
                     getID());
 
             // Add new mappings
-            Iterator<Group> i = groups.iterator();
-
-            while (i.hasNext())
+            List<int[]> mappings = new ArrayList<int[]>();
+            for (Group g : groups)
             {
-                Group g = i.next();
-
-                TableRow mappingRow = DatabaseManager.row("group2group");
-                mappingRow.setColumn("parent_id", getID());
-                mappingRow.setColumn("child_id", g.getID());
-                DatabaseManager.insert(context, mappingRow);
+                mappings.add(new int[] { getID(), g.getID() });
             }
+            insertGroupRelation(context, "group2group", mappings);
 
             // groups changed, now change group cache
-            rethinkGroupCache();
+            updateGroupCache();
             groupsChanged = false;
+            context.clearGroupMemberships();
+            AuthorizationCache.invalidateAll(context);
         }
 
         log.info(LogManager.getHeader(context, "update_group", "group_id="
@@ -1134,14 +1174,140 @@ public class Group extends DSpaceObject
     }
 
     /**
-     * Regenerate the group cache AKA the group2groupcache table in the database -
-     * meant to be called when a group is added or removed from another group
+     * Brings the group cache AKA the group2groupcache table up to date after
+     * the subgroups of this group have changed. Only the rows of this group and
+     * its ancestors can be affected, so only those are recomputed, and only
+     * rows that differ are deleted or inserted.
+     */
+    private void updateGroupCache() throws SQLException
+    {
+        Set<Integer> affected = getAncestorIDs(context, getID());
+
+        affected.add(Integer.valueOf(getID()));
+        updateGroupCache(context, affected);
+    }
+
+    /**
+     * Recomputes the group cache rows of the passed groups, which must include
+     * all ancestors of any group whose subgroups have changed. Rows of other
+     * groups are assumed current, and are used rather than recomputed.
+     *
+     * @param c
+     *            DSpace context
+     * @param affected
+     *            IDs of groups whose cache rows may be out of date
+     */
+    private static void updateGroupCache(Context c, Set<Integer> affected)
+            throws SQLException
+    {
+        if (affected.isEmpty())
+        {
+            return;
+        }
+
+        // direct subgroups of affected groups
+        Map<Integer,Set<Integer>> children = readGroupRelation(c, "group2group", affected);
+
+        // cached descendants of unaffected subgroups are still current
+        Set<Integer> unaffected = new HashSet<Integer>();
+        for (Set<Integer> childIDs : children.values())
+        {
+            for (Integer childID : childIDs)
+            {
+                if (!affected.contains(childID))
+                {
+                    unaffected.add(childID);
+                }
+            }
+        }
+        Map<Integer,Set<Integer>> cached = readGroupRelation(c, "group2groupcache", unaffected);
+
+        // compute the new descendants of each affected group
+        Map<Integer,Set<Integer>> descendants = new HashMap<Integer,Set<Integer>>();
+        for (Integer groupID : affected)
+        {
+            getDescendants(groupID, affected, children, cached, descendants, new HashSet<Integer>());
+        }
+
+        // and compare with what the cache now holds
+        Map<Integer,Set<Integer>> current = readGroupRelation(c, "group2groupcache", affected);
+
+        PreparedBatch deletes = c.getHandle().prepareBatch(
+                "DELETE FROM group2groupcache WHERE parent_id= ? AND child_id= ? ");
+        List<int[]> inserts = new ArrayList<int[]>();
+
+        for (Integer groupID : affected)
+        {
+            Set<Integer> now = descendants.get(groupID);
+            Set<Integer> before = current.containsKey(groupID) ? current.get(groupID) : new HashSet<Integer>();
+
+            for (Integer childID : before)
+            {
+                if (!now.contains(childID))
+                {
+                    deletes.add(groupID, childID);
+                }
+            }
+            for (Integer childID : now)
+            {
+                if (!before.contains(childID))
+                {
+                    inserts.add(new int[] { groupID, childID });
+                }
+            }
+        }
+
+        log.debug("Updating group cache for " + affected.size() + " groups: "
+                + deletes.size() + " rows removed, " + inserts.size() + " rows added");
+
+        if (deletes.size() > 0)
+        {
+            deletes.execute();
+        }
+        insertGroupRelation(c, "group2groupcache", inserts);
+    }
+
+    /**
+     * Insert rows of a group relation table (group2group or group2groupcache)
+     * in one batch, binding IDs reserved from the table's sequence as
+     * DatabaseManager assigns them.
      *
+     * @param c
+     *            DSpace context
+     * @param table
+     *            the relation table
+     * @param pairs
+     *            parent and child group IDs of the rows
      */
-    private void rethinkGroupCache() throws SQLException
+    private static void insertGroupRelation(Context c, String table, List<int[]> pairs)
+            throws SQLException
+    {
+        if (pairs.isEmpty())
+        {
+            return;
+        }
+        List<Integer> ids = DatabaseManager.reserveIds(c, table, pairs.size());
+        PreparedBatch inserts = c.getHandle().prepareBatch(
+                "INSERT INTO " + table + " (id, parent_id, child_id) VALUES (?, ?, ?)");
+        for (int i = 0; i < pairs.size(); i++)
+        {
+            inserts.add(ids.get(i), pairs.get(i)[0], pairs.get(i)[1]);
+        }
+        inserts.execute();
+    }
+
+    /**
+     * Regenerate the entire group cache AKA the group2groupcache table in the
+     * database from the group2group table. Group changes maintain the cache
+     * incrementally, so this is only needed to repair it.
+     *
+     * @param c
+     *            DSpace context
+     */
+    public static void rebuildGroupCache(Context c) throws SQLException
     {
         // read in the group2group table
-        TableRowIterator tri = DatabaseManager.queryTable(context, "group2group",
+        TableRowIterator tri = DatabaseManager.queryTable(c, "group2group",
                 "SELECT * FROM group2group");
 
         Map<Integer,Set<Integer>> parents = new HashMap<Integer,Set<Integer>>();
@@ -1194,24 +1360,19 @@ public class Group extends DSpaceObject
         }
 
         // empty out group2groupcache table
-        DatabaseManager.updateQuery(context,
+        DatabaseManager.updateQuery(c,
                 "DELETE FROM group2groupcache WHERE id >= 0");
 
         // write out new one
+        List<int[]> inserts = new ArrayList<int[]>();
         for (Map.Entry<Integer, Set<Integer>> parent : parents.entrySet())
         {
-            int parentID = parent.getKey().intValue();
-
             for (Integer child : parent.getValue())
             {
-                TableRow row = DatabaseManager.row("group2groupcache");
-
-                row.setColumn("parent_id", parentID);
-                row.setColumn("child_id", child);
-
-                DatabaseManager.insert(context, row);
+                inserts.add(new int[] { parent.getKey(), child });
             }
         }
+        insertGroupRelation(c, "group2groupcache", inserts);
     }
 
     /**
@@ -1224,7 +1385,7 @@ public class Group extends DSpaceObject
      *            the parent you're interested in
      * @return Map whose keys are all of the children of a parent
      */
-    private Set<Integer> getChildren(Map<Integer,Set<Integer>> parents, Integer parent)
+    private static Set<Integer> getChildren(Map<Integer,Set<Integer>> parents, Integer parent)
     {
         Set<Integer> myChildren = new HashSet<Integer>();
 
@@ -1254,6 +1415,164 @@ public class Group extends DSpaceObject
         return myChildren;
     }
 
+    /**
+     * Used recursively to compute all descendants of an affected group,
+     * from the direct subgroups of affected groups, and the cached
+     * descendants of unaffected ones
+     *
+     * @param groupID
+     *            the group you're interested in
+     * @param affected
+     *            IDs of groups whose cached descendants are out of date
+     * @param children
+     *            direct subgroups of affected groups
+     * @param cached
+     *            cached descendants of unaffected groups
+     * @param descendants
+     *            descendants computed so far, by group
+     * @param visiting
+     *            groups on the current path, to guard against cycles
+     * @return Set of IDs of all descendants of the group
+     */
+    private static Set<Integer> getDescendants(Integer groupID, Set<Integer> affected,
+            Map<Integer,Set<Integer>> children, Map<Integer,Set<Integer>> cached,
+            Map<Integer,Set<Integer>> descendants, Set<Integer> visiting)
+    {
+        Set<Integer> myDescendants = descendants.get(groupID);
+
+        if (myDescendants != null)
+        {
+            return myDescendants;
+        }
+
+        myDescendants = new HashSet<Integer>();
+        if (!visiting.add(groupID))
+        {
+            // already on our path
+            return myDescendants;
+        }
+
+        Set<Integer> myChildren = children.containsKey(groupID) ? children.get(groupID) : new HashSet<Integer>();
+
+        for (Integer childID : myChildren)
+        {
+            myDescendants.add(childID);
+
+            if (affected.contains(childID))
+            {
+                myDescendants.addAll(getDescendants(childID, affected, children, cached, descendants, visiting));
+            }
+            else if (cached.containsKey(childID))
+            {
+                myDescendants.addAll(cached.get(childID));
+            }
+        }
+
+        visiting.remove(groupID);
+        descendants.put(groupID, myDescendants);
+        return myDescendants;
+    }
+
+    /**
+     * Returns the IDs of all groups the passed group is a subgroup of,
+     * directly or indirectly, according to the group cache
+     *
+     * @param c
+     *            DSpace context
+     * @param groupID
+     *            ID of the group
+     * @return Set of Integer group IDs
+     */
+    private static Set<Integer> getAncestorIDs(Context c, int groupID)
+            throws SQLException
+    {
+        Set<Integer> ancestors = new HashSet<Integer>();
+
+        TableRowIterator tri = DatabaseManager.queryTable(c, "group2groupcache",
+                "SELECT * FROM group2groupcache WHERE child_id= ? ",
+                groupID);
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                ancestors.add(Integer.valueOf(tri.next().getIntColumn("parent_id")));
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+
+        return ancestors;
+    }
+
+    /**
+     * Reads the parent, child pairs of either group2group or group2groupcache
+     * for a set of parents, in as few queries as possible
+     *
+     * @param c
+     *            DSpace context
+     * @param table
+     *            group2group or group2groupcache
+     * @param parentIDs
+     *            IDs of parent groups
+     * @return Map of parent ID to the set of its child IDs, for parents having any
+     */
+    private static Map<Integer,Set<Integer>> readGroupRelation(Context c, String table,
+            Set<Integer> parentIDs) throws SQLException
+    {
+        Map<Integer,Set<Integer>> relation = new HashMap<Integer,Set<Integer>>();
+        List<Integer> ids = new ArrayList<Integer>(parentIDs);
+
+        for (int start = 0; start < ids.size(); start += GROUP_CHUNK)
+        {
+            List<Integer> chunk = ids.subList(start, Math.min(start + GROUP_CHUNK, ids.size()));
+            StringBuilder query = new StringBuilder("SELECT * FROM ").append(table)
+                    .append(" WHERE parent_id IN (");
+
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                query.append((i > 0) ? ",?" : "?");
+            }
+            query.append(")");
+
+            TableRowIterator tri = DatabaseManager.queryTable(c, table,
+                    query.toString(), chunk.toArray());
+
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    Integer parentID = Integer.valueOf(row.getIntColumn("parent_id"));
+                    Set<Integer> children = relation.get(parentID);
+
+                    if (children == null)
+                    {
+                        children = new HashSet<Integer>();
+                        relation.put(parentID, children);
+                    }
+                    children.add(Integer.valueOf(row.getIntColumn("child_id")));
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                if (tri != null)
+                {
+                    tri.close();
+                }
+            }
+        }
+
+        return relation;
+    }
+
     public DSpaceObject getParentObject() throws SQLException
     {
         // could a collection/community administrator manage related groups?
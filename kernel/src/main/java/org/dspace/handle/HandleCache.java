@@ -0,0 +1,169 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * HandleCache is a process-wide, bounded cache of the bindings of handles to
+ * objects, looked up either way: handle to object type and ID, and object
+ * type and ID to handle. Only bound handles are cached, since a handle not
+ * found may be created (by this or another process) at any time.
+ * <p>
+ * Handles are not reassigned once bound, so bindings are only discarded when
+ * a handle is unbound (e.g. its object deleted) or rebound, or when handle
+ * prefixes are changed. Bindings are cached as handles are created, before
+ * the creating transaction commits; a binding of a transaction rolled back
+ * refers to an object that does not exist, and so resolves to nothing.
+ * Since bindings may change in other processes, entries also expire after
+ * a configurable time to live.
+ * <p>
+ * Configuration (kernel.cfg):
+ * <ul>
+ * <li>handle.cache.enabled - switch cache on or off (default true)</li>
+ * <li>handle.cache.size - maximum number of handles cached (default 50000)</li>
+ * <li>handle.cache.ttl - seconds before an entry expires (default 3600)</li>
+ * </ul>
+ */
+final class HandleCache {
+
+    private static final boolean enabled =
+            ConfigurationManager.getBooleanProperty("handle.cache.enabled", true);
+
+    private static final int cacheSize = ConfigurationManager.getIntProperty("handle.cache.size", 50000);
+    private static final int ttl = ConfigurationManager.getIntProperty("handle.cache.ttl", 3600);
+
+    // handle -> bound object
+    private static final Cache<String, Binding> byHandle =
+            CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+
+    // packed object type and ID -> handle
+    private static final Cache<Long, String> byObject =
+            CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+
+    // metrics for cache effectiveness
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(HandleCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(HandleCache.class, "misses"));
+
+    static {
+        ConfigurationManager.metrics.register(MetricRegistry.name(HandleCache.class, "hit-rate"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    private HandleCache() {}
+
+    /**
+     * Returns the cached binding of a handle, or null if none is cached.
+     *
+     * @param handle the handle
+     * @return the bound object type and ID, or null
+     */
+    static Binding get(String handle) {
+        return count(enabled ? byHandle.getIfPresent(handle) : null);
+    }
+
+    /**
+     * Returns the cached handle of an object, or null if none is cached.
+     *
+     * @param type the object type
+     * @param id the object ID
+     * @return the handle, or null
+     */
+    static String get(int type, int id) {
+        return count(enabled ? byObject.getIfPresent(objectKey(type, id)) : null);
+    }
+
+    /**
+     * Caches the binding of a handle to an object, replacing any binding of
+     * the handle or the object.
+     *
+     * @param handle the handle
+     * @param type the object type
+     * @param id the object ID
+     */
+    static void put(String handle, int type, int id) {
+        if (enabled) {
+            invalidate(handle);
+            byHandle.put(handle, new Binding(type, id));
+            byObject.put(objectKey(type, id), handle);
+        }
+    }
+
+    /**
+     * Discards the cached binding of a handle.
+     *
+     * @param handle the handle
+     */
+    static void invalidate(String handle) {
+        Binding binding = byHandle.getIfPresent(handle);
+        byHandle.invalidate(handle);
+        if (binding != null) {
+            byObject.invalidate(objectKey(binding.type, binding.id));
+        }
+    }
+
+    /**
+     * Discards the cached binding of an object.
+     *
+     * @param type the object type
+     * @param id the object ID
+     */
+    static void invalidate(int type, int id) {
+        String handle = byObject.getIfPresent(objectKey(type, id));
+        byObject.invalidate(objectKey(type, id));
+        if (handle != null) {
+            byHandle.invalidate(handle);
+        }
+    }
+
+    /**
+     * Discards all cached bindings, e.g. when handle prefixes change.
+     */
+    static void invalidateAll() {
+        byHandle.invalidateAll();
+        byObject.invalidateAll();
+    }
+
+    private static <T> T count(T value) {
+        if (value != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+        }
+        return value;
+    }
+
+    private static Long objectKey(int type, int id) {
+        return Long.valueOf(((long)type << 32) | (id & 0xffffffffL));
+    }
+
+    /**
+     * The object a handle is bound to.
+     */
+    static final class Binding {
+        final int type;
+        final int id;
+
+        Binding(int type, int id) {
+            this.type = type;
+            this.id = id;
+        }
+    }
+}
@@ -10,7 +10,9 @@ package org.dspace.handle;
 import java.io.UnsupportedEncodingException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -194,6 +196,7 @@ public class HandleManager {
             handle.setColumn("resource_type_id", dso.getType());
             handle.setColumn("resource_id", dso.getID());
             DatabaseManager.update(context, handle);
+            HandleCache.put(suppliedHandle, dso.getType(), dso.getID());
 
             if (log.isDebugEnabled())  {
                 log.debug("Restored handle for "
@@ -222,6 +225,8 @@ public class HandleManager {
             // is reusing this handle!
             row.setColumnNull("resource_id");
             DatabaseManager.update(context, row);
+            HandleCache.invalidate(row.getStringColumn("handle"));
+            HandleCache.invalidate(dso.getType(), dso.getID());
 
             if(log.isDebugEnabled()) {
                 log.debug("Unbound Handle " + row.getStringColumn("handle") + " from object " + Constants.typeText[dso.getType()] + " id=" + dso.getID());
@@ -251,25 +256,18 @@ public class HandleManager {
     public static int resolveToType(Context context, String handle)
             throws IllegalStateException, SQLException {
 
-        TableRow dbhandle = findHandleInternal(context, handle);
+        HandleCache.Binding binding = resolveBinding(context, handle);
 
-        if (dbhandle == null) {
+        if (binding == null) {
             //If this is the Site-wide Handle, return Site type
             if (handle.equals(Site.getSiteHandle())) {
                 return Constants.SITE;
             }
-            //Otherwise, return -1 (i.e. handle not found in DB)
-            return -1;
-        }
-        // check if handle was allocated previously, but is currently not
-        // associated with a DSpaceObject 
-        // (this may occur when 'unbindHandle()' is called for an obj that was removed)
-        if ((dbhandle.isColumnNull("resource_type_id")) || (dbhandle.isColumnNull("resource_id"))) {
-            //if handle has been unbound, just return -1 (as this will result in a PageNotFound)
+            //Otherwise, return -1 (i.e. handle not found in DB, or unbound)
             return -1;
         }
 
-        return dbhandle.getIntColumn("resource_type_id");
+        return binding.type;
     }
 
     /**
@@ -289,29 +287,20 @@ public class HandleManager {
      */
     public static DSpaceObject resolveToObject(Context context, String handle)
             throws IllegalStateException, SQLException {
-        TableRow dbhandle = findHandleInternal(context, handle);
+        HandleCache.Binding binding = resolveBinding(context, handle);
 
-        if (dbhandle == null) {
+        if (binding == null) {
             //If this is the Site-wide Handle, return Site object
             if (handle.equals(Site.getSiteHandle())) {
                 return Site.find(context, 0);
             }
-            //Otherwise, return null (i.e. handle not found in DB)
-            return null;
-        }
-
-        // check if handle was allocated previously, but is currently not
-        // associated with a DSpaceObject 
-        // (this may occur when 'unbindHandle()' is called for an obj that was removed)
-        if ((dbhandle.isColumnNull("resource_type_id"))
-                || (dbhandle.isColumnNull("resource_id")))  {
-            //if handle has been unbound, just return null (as this will result in a PageNotFound)
+            //Otherwise, return null (i.e. handle not found in DB, or unbound)
             return null;
         }
 
         // What are we looking at here?
-        int handletypeid = dbhandle.getIntColumn("resource_type_id");
-        int resourceID = dbhandle.getIntColumn("resource_id");
+        int handletypeid = binding.type;
+        int resourceID = binding.id;
 
         if (handletypeid == Constants.ITEM)  {
             Item item = Item.find(context, resourceID);
@@ -359,16 +348,7 @@ public class HandleManager {
      */
     public static String findHandle(Context context, DSpaceObject dso)
             throws SQLException {
-        TableRow row = getHandleInternal(context, dso.getType(), dso.getID());
-        if (row == null) {
-            if (dso.getType() == Constants.SITE) {
-                return Site.getSiteHandle();
-            } else {
-                return null;
-            }
-        } else {
-            return row.getStringColumn("handle");
-        }
+        return findHandle(context, dso.getType(), dso.getID());
     }
     
     /**
@@ -384,6 +364,10 @@ public class HandleManager {
      */
     public static String findHandle(Context context, int type, int id)
             throws SQLException {
+        String handle = HandleCache.get(type, id);
+        if (handle != null) {
+            return handle;
+        }
         TableRow row = getHandleInternal(context, type, id);
         if (row == null) {
             if (type == Constants.SITE) {
@@ -392,10 +376,57 @@ public class HandleManager {
                 return null;
             }
         } else {
-            return row.getStringColumn("handle");
+            handle = row.getStringColumn("handle");
+            HandleCache.put(handle, type, id);
+            return handle;
         }
     }
 
+    /**
+     * Return the handles of objects of one type, looking up in one query
+     * those not cached. Objects without handles are absent from the result.
+     * 
+     * @param context
+     *            DSpace context
+     * @param type
+     *            The type of the objects
+     * @param ids
+     *            The IDs of the objects
+     * @return The handles of the objects, keyed by object ID
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static Map<Integer, String> findHandles(Context context, int type, java.util.Collection<Integer> ids)
+            throws SQLException {
+        Map<Integer, String> handles = new HashMap<Integer, String>();
+        List<Object> params = new ArrayList<Object>();
+        params.add(type);
+        for (Integer id : ids) {
+            String handle = HandleCache.get(type, id);
+            if (handle != null) {
+                handles.put(id, handle);
+            } else {
+                params.add(id);
+            }
+        }
+        if (params.size() > 1) {
+            StringBuilder sql = new StringBuilder("SELECT * FROM handle WHERE resource_type_id = ? AND resource_id IN (");
+            for (int i = 1; i < params.size(); i++) {
+                sql.append((i > 1) ? ",?" : "?");
+            }
+            sql.append(")");
+            try (TableRowIterator tri = DatabaseManager.queryTable(context, "handle", sql.toString(), params.toArray())) {
+                while (tri.hasNext()) {
+                    TableRow row = tri.next();
+                    String handle = row.getStringColumn("handle");
+                    handles.put(row.getIntColumn("resource_id"), handle);
+                    HandleCache.put(handle, type, row.getIntColumn("resource_id"));
+                }
+            }
+        }
+        return handles;
+    }
+
     /**
      * Return all the handles which start with prefix.
      * 
@@ -459,6 +490,7 @@ public class HandleManager {
         handleRow.setColumn("resource_type_id", dso.getType());
         handleRow.setColumn("resource_id", dso.getID());
         DatabaseManager.update(context, handleRow);
+        HandleCache.put(handleId, dso.getType(), dso.getID());
 
         if (ConfigurationManager.getBooleanProperty("handle", "server.remote")) {
             // register handle with LHS
@@ -569,6 +601,44 @@ public class HandleManager {
         return DatabaseManager.querySingleTable(context, "Handle", sql, type, id);
     }
 
+    /**
+     * Return the object type and ID a handle is bound to, from the cache
+     * if cached there.
+     * 
+     * @param context
+     *            DSpace context
+     * @param handle
+     *            The handle to resolve
+     * @return The binding, or null if the handle is not found or unbound
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    private static HandleCache.Binding resolveBinding(Context context, String handle)
+            throws SQLException {
+        if (handle == null) {
+            throw new IllegalArgumentException("Handle is null");
+        }
+        HandleCache.Binding binding = HandleCache.get(handle);
+        if (binding != null) {
+            return binding;
+        }
+
+        TableRow dbhandle = findHandleInternal(context, handle);
+
+        // check if handle was allocated previously, but is currently not
+        // associated with a DSpaceObject 
+        // (this may occur when 'unbindHandle()' is called for an obj that was removed)
+        if (dbhandle == null || dbhandle.isColumnNull("resource_type_id")
+                || dbhandle.isColumnNull("resource_id")) {
+            return null;
+        }
+
+        int type = dbhandle.getIntColumn("resource_type_id");
+        int id = dbhandle.getIntColumn("resource_id");
+        HandleCache.put(handle, type, id);
+        return new HandleCache.Binding(type, id);
+    }
+
     /**
      * Find the database row corresponding to handle.
      * 
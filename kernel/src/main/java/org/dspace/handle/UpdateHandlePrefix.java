@@ -67,6 +67,10 @@ public class UpdateHandlePrefix
                 // Commit the changes
                 context.complete();
 
+                // Discard handles cached with the old prefix; other running
+                // processes see the new handles once their cached ones expire
+                HandleCache.invalidateAll();
+
                 System.out.print("Re-creating search indexes... ");                
 
                 // Reinitialise the browse system
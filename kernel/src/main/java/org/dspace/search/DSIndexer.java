@@ -15,6 +15,8 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,6 +26,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import org.kohsuke.args4j.Argument;
@@ -37,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Strings;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.dspace.content.Bitstream;
 import org.dspace.content.BoundedIterator;
@@ -59,6 +66,9 @@ import org.dspace.event.ContentEvent.EventType;
 import org.dspace.handle.HandleManager;
 import org.dspace.sort.SortOption;
 import org.dspace.sort.OrderFormat;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
 
 /**
  * DSIndexer contains the methods that index DSpaceObjects and their metadata.
@@ -87,6 +97,9 @@ public class DSIndexer {
     
     // map of configured indexes
     private static Map<String, IndexConfig> configs;
+
+    // last indexed times of documents by index name, while updating all content - else null
+    private volatile Map<String, Map<String, Long>> lastIndexed;
     
     // command-line options
     @Option(name="-r", usage="remove an Item, Collection or Community from index based on its handle")
@@ -98,6 +111,12 @@ public class DSIndexer {
     @Option(name="-f", usage="if updating existing index, force each handle to be reindexed even if uptodate")
     private boolean force;
     
+    @Option(name="-t", usage="number of threads indexing items (default from reindex.threads)")
+    private int threads = ConfigurationManager.getIntProperty("search", "reindex.threads", 1);
+
+    @Option(name="-c", usage="continue an interrupted (re)build or update from its last completed range of items")
+    private boolean resume;
+
     @Option(name="-h", usage="print helpful message")
     private boolean help;
     
@@ -196,7 +215,7 @@ public class DSIndexer {
             		Item item = (Item)dso;
             		if (item.isArchived() && !item.isWithdrawn()) {
             			/** If the item is in the repository now, add it to the index*/
-            			if (force || config.service.isDocumentStale(handle, ((Item)dso).getLastModified()))	{
+            			if (force || isStale(config, handle, ((Item)dso).getLastModified()))	{
             				log.info("Writing Item: " + handle + " to Index");
             				task = buildItemTask((Item)dso, config);
             			}
@@ -288,8 +307,10 @@ public class DSIndexer {
 	 * @param c context to use
 	 */
     public void createIndex(Context c) throws SQLException, IOException {
-    	/* Create a new index, blowing away the old. */
-        distributeTask(new IndexingTask(IndexingTask.Action.PURGE)); 
+    	/* Create a new index, blowing away the old - unless continuing one. */
+    	if (! resume) {
+    		distributeTask(new IndexingTask(IndexingTask.Action.PURGE));
+    	}
         /* Reindex all content preemptively. */
         updateIndex(c, true);
     }
@@ -357,6 +378,13 @@ public class DSIndexer {
      * to step in and attain a lock and write to the index even if other
      * processes/jvms are running a reindex.
      * 
+     * With more than one thread configured, or when continuing an interrupted
+     * run, items are indexed in parallel by <code>updateItems</code>.
+     * Unless forced, the last indexed times of all documents are loaded
+     * first, if every index can supply them, and items are then indexed by
+     * <code>updateItems</code> too - so that only items modified since
+     * indexed are loaded.
+     * 
      * @param context
      * @param force 
      */
@@ -365,23 +393,31 @@ public class DSIndexer {
     	BoundedIterator<Collection> colIter = null;
     	BoundedIterator<Community> comIter = null;
     	try {
-            items = Item.findAll(context);
-            while (items.hasNext()) {
-                indexContent(context, items.next(), false);
-            }
+    		if (! force) {
+    			lastIndexed = loadLastIndexed();
+    		}
+    		if (threads > 1 || resume || lastIndexed != null) {
+    			updateItems(context, force);
+    		} else {
+    			items = Item.findAll(context).preload(BoundedIterator.PRELOAD_CHUNK, true);
+    			while (items.hasNext()) {
+    				indexContent(context, items.next(), force);
+    			}
+    		}
 
             colIter = Collection.findAll(context);
             while (colIter.hasNext()) {
-                indexContent(context, colIter.next(), false);
+                indexContent(context, colIter.next(), force);
             }
             comIter = Community.findAll(context);
             while (comIter.hasNext()) {
-                indexContent(context, comIter.next(), false);
+                indexContent(context, comIter.next(), force);
     	    }
 
         } catch(Exception e) {
     		log.error(e.getMessage(), e);
     	} finally {
+    		lastIndexed = null;
     		if (items != null) {
     			items.close();
     		}   		
@@ -397,7 +433,200 @@ public class DSIndexer {
     ////////////////////////////////////
     //      Private
     ////////////////////////////////////
-    
+
+    /**
+     * Indexes all archived items on a number of threads. Item IDs are
+     * partitioned into ranges, each indexed by a worker in a read-only
+     * context of its own, all feeding the shared index services. The start of
+     * the first range not yet completed is saved to a progress file as ranges
+     * complete, so an interrupted run may be continued from there (with -c).
+     * The file is removed once all ranges are completed.
+     */
+    private void updateItems(Context context, final boolean force) throws SQLException, IOException, InterruptedException {
+    	int rangeSize = Math.max(1, ConfigurationManager.getIntProperty("search", "reindex.range", 1000));
+    	final File progressFile = new File(ConfigurationManager.getProperty("search", "reindex.progress") != null ?
+    			ConfigurationManager.getProperty("search", "reindex.progress") :
+    			ConfigurationManager.getProperty("log.dir") + File.separator + "reindex.progress");
+    	TableRow bounds = DatabaseManager.querySingle(context,
+    			"SELECT MIN(item_id) AS min_id, MAX(item_id) AS max_id FROM item WHERE in_archive='1' OR withdrawn='1'");
+    	if (bounds == null || bounds.isColumnNull("min_id")) {
+    		return;
+    	}
+    	int first = bounds.getIntColumn("min_id");
+    	int last = bounds.getIntColumn("max_id");
+    	if (resume && progressFile.exists()) {
+    		first = Math.max(first, Integer.parseInt(
+    				new String(Files.readAllBytes(progressFile.toPath()), "UTF-8").trim()));
+    		log.info("Continuing from item ID " + first);
+    	}
+    	final List<Integer> starts = new ArrayList<Integer>();
+    	for (long start = first; start <= last; start += rangeSize) {
+    		starts.add((int)start);
+    	}
+    	final int end = last + 1;
+    	final boolean[] completed = new boolean[starts.size()];
+    	final AtomicInteger indexed = new AtomicInteger();
+    	final AtomicInteger done = new AtomicInteger();
+    	final long startTime = System.currentTimeMillis();
+
+    	ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, threads),
+    			new ThreadFactoryBuilder().setNameFormat("reindex-%d").build());
+    	final int ranges = starts.size();
+    	final int size = rangeSize;
+    	try {
+    		for (int i = 0; i < ranges; i++) {
+    			final int range = i;
+    			workers.execute(new Runnable() {
+    				@Override
+    				public void run() {
+    					int from = starts.get(range);
+    					int to = (int)Math.min((long)from + size, end);
+    					try {
+    						indexed.addAndGet(indexItems(from, to, force));
+    					} catch (Exception e) {
+    						log.error("Unable to index items " + from + " to " + (to - 1) + ", continue with -c", e);
+    						return;
+    					}
+    					synchronized (completed) {
+    						completed[range] = true;
+    						int next = 0;
+    						while (next < ranges && completed[next]) {
+    							next++;
+    						}
+    						saveProgress(progressFile, (next < ranges) ? starts.get(next) : end);
+    					}
+    					long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+    					String progress = "Indexed ranges: " + done.incrementAndGet() + "/" + ranges +
+    							", items: " + indexed.get() + " (" + (indexed.get() * 1000L / elapsed) + " per sec)";
+    					log.info(progress);
+    					System.out.println(progress);
+    				}
+    			});
+    		}
+    	} finally {
+    		workers.shutdown();
+    		while (! workers.awaitTermination(1, TimeUnit.MINUTES)) {
+    			log.info("Awaiting reindex workers");
+    		}
+    	}
+    	if (done.get() == ranges) {
+    		progressFile.delete();
+    	} else {
+    		log.error((ranges - done.get()) + " ranges of items not indexed - progress saved in " + progressFile);
+    	}
+    }
+
+    // indexes the archived items with IDs from (inclusive) to (exclusive) in a context of their own
+    private int indexItems(int from, int to, boolean force) throws SQLException {
+    	Context context = new Context(Context.READ_ONLY);
+    	BoundedIterator<Item> items = null;
+    	try {
+    		context.turnOffAuthorisationSystem();
+    		int count = 0;
+    		if (lastIndexed != null) {
+    			// load only the items known to need indexing
+    			for (int itemID : staleItems(context, from, to)) {
+    				Item item = Item.find(context, itemID);
+    				if (item != null) {
+    					indexContent(context, item, force);
+    					count++;
+    				}
+    			}
+    			return count;
+    		}
+    		items = Item.findAll(context, from, to).preload(BoundedIterator.PRELOAD_CHUNK, true);
+    		while (items.hasNext()) {
+    			indexContent(context, items.next(), force);
+    			count++;
+    		}
+    		return count;
+    	} finally {
+    		if (items != null) {
+    			items.close();
+    		}
+    		context.abort();
+    	}
+    }
+
+    /**
+     * Returns the last indexed times of the documents of every index, or null
+     * if any index cannot supply them.
+     */
+    private Map<String, Map<String, Long>> loadLastIndexed() throws IOException {
+    	long start = System.currentTimeMillis();
+    	Map<String, Map<String, Long>> indexed = new HashMap<String, Map<String, Long>>();
+    	for (IndexConfig cfg : configs.values()) {
+    		Map<String, Long> times = cfg.service.getLastIndexed();
+    		if (times == null) {
+    			return null;
+    		}
+    		indexed.put(cfg.indexName, times);
+    		log.info("Loaded last indexed times of " + times.size() + " documents in index " + cfg.indexName);
+    	}
+    	log.info("Loaded last indexed times in " + (System.currentTimeMillis() - start) + " ms");
+    	return indexed;
+    }
+
+    // is an index's document older than the last modification - from the loaded times if any
+    private boolean isStale(IndexConfig config, String handle, Date lastModified) throws IOException {
+    	Map<String, Map<String, Long>> indexed = lastIndexed;
+    	if (indexed == null) {
+    		return config.service.isDocumentStale(handle, lastModified);
+    	}
+    	Long time = indexed.get(config.indexName).get(handle);
+    	return time == null || time < lastModified.getTime();
+    }
+
+    /**
+     * Returns the IDs of the archived or withdrawn items in a range that need
+     * indexing in any index, by comparing the last indexed times loaded with
+     * the items' last modified dates: items withdrawn but still indexed (which
+     * indexContent removes, as withdrawal takes them out of the archive), and
+     * archived items modified since indexed, or not indexed at all.
+     */
+    private List<Integer> staleItems(Context context, int from, int to) throws SQLException {
+    	List<Integer> stale = new ArrayList<Integer>();
+    	TableRowIterator tri = DatabaseManager.query(context,
+    			"SELECT item.item_id, item.withdrawn, item.last_modified, handle.handle FROM item " +
+    			"LEFT JOIN handle ON handle.resource_type_id = ? AND handle.resource_id = item.item_id " +
+    			"WHERE (item.in_archive='1' OR item.withdrawn='1') AND item.item_id >= ? AND item.item_id < ? " +
+    			"ORDER BY item.item_id",
+    			Constants.ITEM, from, to);
+    	try {
+    		while (tri.hasNext()) {
+    			TableRow row = tri.next();
+    			String handle = row.getStringColumn("handle");
+    			if (handle == null) {
+    				continue;
+    			}
+    			boolean withdrawn = row.getBooleanColumn("withdrawn");
+    			Date lastModified = row.getDateColumn("last_modified");
+    			for (Map<String, Long> times : lastIndexed.values()) {
+    				Long time = times.get(handle);
+    				if (withdrawn ? time != null :
+    						time == null || lastModified == null || time < lastModified.getTime()) {
+    					stale.add(row.getIntColumn("item_id"));
+    					break;
+    				}
+    			}
+    		}
+    	} finally {
+    		tri.close();
+    	}
+    	return stale;
+    }
+
+    // records the item ID from which an interrupted run continues
+    private static void saveProgress(File progressFile, int next) {
+    	try {
+    		File tmp = new File(progressFile.getPath() + ".tmp");
+    		Files.write(tmp.toPath(), String.valueOf(next).getBytes("UTF-8"));
+    		Files.move(tmp.toPath(), progressFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    	} catch (IOException e) {
+    		log.warn("Unable to save reindex progress", e);
+    	}
+    }
+
     // NB: Only use when task applies to any index
     private void distributeTask(IndexingTask task) throws IOException {
     	for (IndexConfig cfg : configs.values()) {
@@ -532,7 +761,7 @@ public class DSIndexer {
                 		if (field.startsWith("@")) {
                 			StreamParser sp = getParser(field.substring(1));
                 			if (sp != null) {
-                				sp.parse(bitstream.retrieve(), task);
+                				ExtractedTextCache.parse(bitstream, field.substring(1), sp, task);
                 			} else {
                 				log.error("Invalid StreamParser: " + field.substring(1));
                 			}
@@ -551,6 +780,18 @@ public class DSIndexer {
         return task;
     }
     
+    /**
+     * Builds (but does not perform) the indexing tasks of an item for every
+     * index, so filling the extracted text cache as indexing would.
+     *
+     * @param item the item
+     */
+    void extractText(Item item) throws SQLException, IOException {
+    	for (IndexConfig cfg : configs.values()) {
+    		buildItemTask(item, cfg).closeStreams();
+    	}
+    }
+
     private void addMetadata(DSpaceObject dso, IndexingTask task, List<IndexRule> rules) throws SQLException {
         // Examine all md fields and assign those matching any indexing rule
     	int type = dso.getType();
@@ -158,7 +158,7 @@ public class DSQuery {
 
         try
         {
-            Context c = new Context();
+            Context c = new Context(Context.READ_ONLY);
 
             QueryArgs args = new QueryArgs();
             args.setQuery(query);
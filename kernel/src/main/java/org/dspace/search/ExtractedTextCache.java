@@ -0,0 +1,432 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.ByteStreams;
+
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Bitstream;
+import org.dspace.content.BoundedIterator;
+import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * ExtractedTextCache keeps what index stream parsers extract from
+ * bitstreams (the fields and streams they add to indexing tasks) in the
+ * database (the extractedtext table), keyed by bitstream checksum and parser,
+ * so that unchanged bitstreams need not be retrieved and parsed again when
+ * reindexed. As the content of a checksum never changes, entries are never
+ * stale; they are evicted, least recently used first, when the cache exceeds
+ * its size limit. Lookups are read-only; the use of entries hit is recorded
+ * with the next write to the cache, i.e. when text is next cached or evicted.
+ * <p>
+ * The cache may be filled ahead of indexing, evicted or purged with the
+ * command-line tool (see <code>main</code>).
+ * <p>
+ * Configuration (modules/search.cfg):
+ * <ul>
+ * <li>textcache.enabled - switch cache on or off (default false)</li>
+ * <li>textcache.size - maximum megabytes (approximately) of text cached
+ * (default 1024)</li>
+ * <li>textcache.entry.size - maximum kilobytes of text cached for one
+ * bitstream (default 4096); larger text is not cached, and is read no
+ * further than this limit before being passed on to the index</li>
+ * </ul>
+ */
+public class ExtractedTextCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractedTextCache.class);
+
+    private static final boolean enabled =
+            ConfigurationManager.getBooleanProperty("search", "textcache.enabled", false);
+
+    private static final long maxSize = ConfigurationManager.getIntProperty("search", "textcache.size", 1024) * 1024L * 1024L;
+    private static final long maxEntrySize = ConfigurationManager.getIntProperty("search", "textcache.entry.size", 4096) * 1024L;
+
+    // last use is only recorded when older than this, to spare writes
+    private static final long TOUCH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    // number of entries added between checks of the cache size
+    private static final int EVICT_EVERY = 100;
+
+    // maximum number of entries removed by one statement
+    private static final int CHUNK = 500;
+
+    private static final AtomicInteger added = new AtomicInteger();
+
+    // keys of entries hit whose last use is due to be recorded - on the next write to the cache
+    private static final Set<String> touched = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // metrics for cache effectiveness
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(ExtractedTextCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(ExtractedTextCache.class, "misses"));
+
+    // command-line options
+    @Option(name="-p", usage="populate the cache by parsing the bitstreams of all archived items")
+    private boolean populate;
+
+    @Option(name="-e", usage="evict least recently used text until within the size limit")
+    private boolean evict;
+
+    @Option(name="-x", usage="purge the cache of all text")
+    private boolean purge;
+
+    @Option(name="-h", usage="print helpful message")
+    private boolean help;
+
+    private ExtractedTextCache() {}
+
+    /**
+     * Reports whether extracted text is cached.
+     *
+     * @return true if extracted text is cached
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds what a parser extracts from a bitstream to an indexing task -
+     * from the cache if there, else by parsing the bitstream, then caching
+     * what was extracted.
+     *
+     * @param bitstream the bitstream
+     * @param parserName the configured name of the parser
+     * @param parser the parser
+     * @param task the indexing task to update
+     * @throws IOException if the bitstream cannot be parsed
+     * @throws SQLException if the bitstream cannot be retrieved
+     */
+    static void parse(Bitstream bitstream, String parserName, StreamParser parser, IndexingTask task)
+            throws IOException, SQLException {
+        String key = key(bitstream, parserName);
+        if (! enabled || key == null) {
+            try {
+                parser.parse(bitstream.retrieve(), task);
+            } catch (AuthorizeException authE) {
+                throw new IOException(authE);
+            }
+            return;
+        }
+        String content = get(key);
+        if (content != null) {
+            hits.inc();
+            apply(content, task);
+            return;
+        }
+        misses.inc();
+        IndexingTask extracted = new IndexingTask(IndexingTask.Action.UPDATE);
+        try {
+            parser.parse(bitstream.retrieve(), extracted);
+        } catch (AuthorizeException authE) {
+            throw new IOException(authE);
+        }
+        content = transfer(extracted, task);
+        if (content != null) {
+            put(key, content);
+        }
+    }
+
+    /**
+     * Removes least recently used text until the cache is within its size
+     * limit - or rather within 90% of it, so removals are not needed again at
+     * once.
+     *
+     * @param context the DSpace context
+     * @return the number of entries removed
+     * @throws SQLException if a database error occurs
+     */
+    public static int evict(Context context) throws SQLException {
+        touch(context);
+        TableRow row = DatabaseManager.querySingle(context,
+                "SELECT CAST(COALESCE(SUM(content_size), 0) AS BIGINT) AS total FROM extractedtext");
+        long total = row.getLongColumn("total");
+        if (total <= maxSize) {
+            return 0;
+        }
+        long target = maxSize / 10 * 9;
+        List<String> keys = new ArrayList<String>();
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT text_key, content_size FROM extractedtext ORDER BY last_used");
+        try {
+            while (total > target && tri.hasNext()) {
+                TableRow entry = tri.next();
+                keys.add(entry.getStringColumn("text_key"));
+                total -= entry.getLongColumn("content_size");
+            }
+        } finally {
+            tri.close();
+        }
+        for (int start = 0; start < keys.size(); start += CHUNK) {
+            List<String> chunk = keys.subList(start, Math.min(start + CHUNK, keys.size()));
+            StringBuilder sql = new StringBuilder("DELETE FROM extractedtext WHERE text_key IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append((i > 0) ? ",?" : "?");
+            }
+            sql.append(")");
+            DatabaseManager.updateQuery(context, sql.toString(), chunk.toArray());
+        }
+        return keys.size();
+    }
+
+    /**
+     * Removes all text from the cache.
+     *
+     * @param context the DSpace context
+     * @return the number of entries removed
+     * @throws SQLException if a database error occurs
+     */
+    public static int purge(Context context) throws SQLException {
+        return DatabaseManager.updateQuery(context, "DELETE FROM extractedtext");
+    }
+
+    /**
+     * When invoked as a command-line tool, populates, evicts or purges
+     * the cache.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) throws Exception {
+        ExtractedTextCache cache = new ExtractedTextCache();
+        CmdLineParser parser = new CmdLineParser(cache);
+        Context context = null;
+        try {
+            parser.parseArgument(args);
+            if (cache.help || ! (cache.populate || cache.evict || cache.purge)) {
+                parser.printUsage(System.err);
+                System.exit(0);
+            }
+            context = new Context();
+            context.turnOffAuthorisationSystem();
+            if (cache.purge) {
+                System.out.println("Purged " + purge(context) + " entries");
+                context.commit();
+            }
+            if (cache.populate) {
+                if (! enabled) {
+                    System.err.println("Cache not enabled - set textcache.enabled in search.cfg");
+                    System.exit(1);
+                }
+                long start = System.currentTimeMillis();
+                int count = populate(context);
+                System.out.println("Parsed bitstreams of " + count + " items in " +
+                                   (System.currentTimeMillis() - start) + " ms - hits: " + hits.getCount() +
+                                   ", misses: " + misses.getCount());
+            }
+            if (cache.evict || cache.populate) {
+                System.out.println("Evicted " + evict(context) + " entries");
+            }
+            context.complete();
+            System.exit(0);
+        } catch (CmdLineException clE) {
+            System.err.println(clE.getMessage());
+            parser.printUsage(System.err);
+        } catch (SQLException sqlE) {
+            System.err.println("Cache update failed: " + sqlE.getMessage());
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+        System.exit(1);
+    }
+
+    // parses the bitstreams of all archived items, as indexing would, returning the number of items
+    private static int populate(Context context) throws SQLException, IOException {
+        DSIndexer indexer = new DSIndexer();
+        BoundedIterator<Item> items = Item.findAll(context);
+        int count = 0;
+        try {
+            while (items.hasNext()) {
+                Item item = items.next();
+                if (! item.isWithdrawn()) {
+                    indexer.extractText(item);
+                    count++;
+                }
+            }
+        } finally {
+            items.close();
+        }
+        return count;
+    }
+
+    // the key of a bitstream's text - null if the bitstream has no checksum
+    private static String key(Bitstream bitstream, String parserName) {
+        String checksum = bitstream.getChecksum();
+        if (checksum == null) {
+            return null;
+        }
+        return bitstream.getChecksumAlgorithm() + ":" + checksum + ":" + parserName;
+    }
+
+    // returns cached text, noting its use - in a read-only context of its own, as lookups need no transaction
+    private static String get(String key) {
+        Context context = null;
+        try {
+            context = new Context(Context.READ_ONLY);
+            TableRow row = DatabaseManager.querySingle(context,
+                    "SELECT content, last_used FROM extractedtext WHERE text_key = ? ", key);
+            if (row == null) {
+                return null;
+            }
+            if (row.isColumnNull("last_used") ||
+                System.currentTimeMillis() - row.getDateColumn("last_used").getTime() > TOUCH_INTERVAL) {
+                touched.add(key);
+            }
+            return row.getStringColumn("content");
+        } catch (SQLException sqlE) {
+            log.warn("Unable to read cached text " + key, sqlE);
+            return null;
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    // records the last use of entries hit since the last write, before any eviction considers it
+    private static void touch(Context context) throws SQLException {
+        if (touched.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<String>(touched);
+        touched.removeAll(keys);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int start = 0; start < keys.size(); start += CHUNK) {
+            List<String> chunk = keys.subList(start, Math.min(start + CHUNK, keys.size()));
+            StringBuilder sql = new StringBuilder("UPDATE extractedtext SET last_used = ? WHERE text_key IN (");
+            List<Object> params = new ArrayList<Object>(chunk.size() + 1);
+            params.add(now);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append((i > 0) ? ",?" : "?");
+                params.add(chunk.get(i));
+            }
+            sql.append(")");
+            DatabaseManager.updateQuery(context, sql.toString(), params.toArray());
+        }
+    }
+
+    // caches text, best effort - others may have cached it meanwhile; the only write on the indexing path
+    private static void put(String key, String content) {
+        Context context = null;
+        try {
+            context = new Context();
+            touch(context);
+            DatabaseManager.updateQuery(context, "DELETE FROM extractedtext WHERE text_key = ? ", key);
+            DatabaseManager.updateQuery(context,
+                    "INSERT INTO extractedtext (text_key, content, content_size, last_used) VALUES (?, ?, ?, ?)",
+                    key, content, (long)content.length(), new Timestamp(System.currentTimeMillis()));
+            if (added.incrementAndGet() % EVICT_EVERY == 0) {
+                evict(context);
+            }
+            context.complete();
+        } catch (SQLException sqlE) {
+            log.warn("Unable to cache text " + key, sqlE);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /*
+     * Extracted fields and streams are serialized as entries of a header line
+     * - kind ('f' or 's'), name and value length, separated by tabs - followed
+     * by the value. Streams are read as text in the platform charset, as the
+     * index reads them; NUL characters, which the database cannot store and
+     * the index ignores, are dropped.
+     *
+     * Adds what was extracted to the task, returning it serialized - or null
+     * once it exceeds the entry size limit, streams then being added without
+     * being read further (a partly read stream as what was read followed by
+     * the rest).
+     */
+    private static String transfer(IndexingTask extracted, IndexingTask task) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        boolean cacheable = true;
+        for (String name : extracted.getFieldKeys()) {
+            for (String value : extracted.getFieldValues(name)) {
+                task.addField(name, value);
+                if (cacheable) {
+                    append(sb, 'f', name, value);
+                    cacheable = sb.length() <= maxEntrySize;
+                }
+            }
+        }
+        for (String name : extracted.getStreamKeys()) {
+            for (InputStream is : extracted.getStreamValues(name)) {
+                if (! cacheable) {
+                    task.addStream(name, is);
+                    continue;
+                }
+                byte[] read = ByteStreams.toByteArray(ByteStreams.limit(is, maxEntrySize - sb.length() + 1));
+                if (sb.length() + read.length > maxEntrySize) {
+                    cacheable = false;
+                    task.addStream(name, new SequenceInputStream(new ByteArrayInputStream(read), is));
+                    continue;
+                }
+                is.close();
+                task.addStream(name, new ByteArrayInputStream(read));
+                append(sb, 's', name, new String(read, Charset.defaultCharset()));
+            }
+        }
+        return cacheable ? sb.toString() : null;
+    }
+
+    private static void append(StringBuilder sb, char kind, String name, String value) {
+        if (value.indexOf('\0') >= 0) {
+            value = value.replace("\0", "");
+        }
+        sb.append(kind).append('\t').append(name).append('\t').append(value.length()).append('\n').append(value);
+    }
+
+    private static void apply(String content, IndexingTask task) throws IOException {
+        int pos = 0;
+        while (pos < content.length()) {
+            int eol = content.indexOf('\n', pos);
+            String[] header = content.substring(pos, eol).split("\t");
+            int start = eol + 1;
+            int end = start + Integer.parseInt(header[2]);
+            String value = content.substring(start, end);
+            if ("s".equals(header[0])) {
+                task.addStream(header[1], new ByteArrayInputStream(value.getBytes(Charset.defaultCharset())));
+            } else {
+                task.addField(header[1], value);
+            }
+            pos = end;
+        }
+    }
+}
@@ -89,19 +89,214 @@ public class Harvest
             boolean items, boolean collections, boolean withdrawn,
             boolean nonAnon) throws SQLException, ParseException
     {
+        List<Serializable> parameters = new ArrayList<Serializable>();
+        String query = harvestQuery(context, scope, startDate, endDate, -1, 0, withdrawn, parameters);
+
+        Object[] parametersArray = parameters.toArray();
+        TableRowIterator tri = DatabaseManager.query(context, query, parametersArray);
+        List<HarvestedItemInfo> infoObjects = new LinkedList<HarvestedItemInfo>();
+
+        // Count of items read from the record set that match the selection criteria.
+        // Note : Until 'index > offset' the records are not added to the output set.
+        int index = 0;
+
+        // Count of items added to the output set.
+        int itemCounter = 0;
+
+        try
+        {
+            // Process results of query into HarvestedItemInfo objects
+            while ((tri.hasNext()) && ((limit == 0) || (itemCounter < limit)))
+            {
+                HarvestedItemInfo itemInfo = harvestedItem(context, tri.next(), items, collections, withdrawn, nonAnon);
+                if (itemInfo != null)
+                {
+                    index++;
+                    if (index > offset)
+                    {
+                        infoObjects.add(itemInfo);
+                        itemCounter++;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+
+        return infoObjects;
+    }
+
+    /**
+     * Obtain information about items that have been created, modified or
+     * withdrawn within a given date range, as <code>harvest</code> does, but
+     * starting after a given item rather than at an offset. Items are
+     * harvested in item ID order, so passing the ID of the last item of one
+     * partial harvest as <code>afterID</code> of the next continues where it
+     * left off. Each partial harvest is a bounded range scan of the item IDs
+     * from that point, however far into the overall list it is.
+     *
+     * @param context
+     *            DSpace context
+     * @param scope
+     *            a Collection, Community, or <code>null</code> indicating the scope is
+     *            all of DSpace
+     * @param startDate
+     *            start of date range, or <code>null</code>
+     * @param endDate
+     *            end of date range, or <code>null</code>
+     * @param afterID
+     *            for a partial harvest, the ID of the last item of the previous
+     *            partial harvest. -1 means just start at the beginning.
+     * @param limit
+     *            the number of matching items to return in a partial harvest.
+     *            Specify 0 to return the whole list (or the rest of the list if
+     *            an item was specified.)
+     * @param items
+     *            if <code>true</code> the <code>item</code> field of each
+     *            <code>HarvestedItemInfo</code> object is filled out
+     * @param collections
+     *            if <code>true</code> the <code>collectionHandles</code>
+     *            field of each <code>HarvestedItemInfo</code> object is
+     *            filled out
+     * @param withdrawn
+     *            If <code>true</code>, information about withdrawn items is
+     *            included
+     * @param nonAnon
+     *            If items without anonymous access should be included or not
+     * @return List of <code>HarvestedItemInfo</code> objects
+     * @throws java.sql.SQLException
+     * @throws java.text.ParseException If the date is not in a supported format
+     */
+    public static List<HarvestedItemInfo> harvestAfter(Context context, DSpaceObject scope,
+            String startDate, String endDate, int afterID, int limit,
+            boolean items, boolean collections, boolean withdrawn,
+            boolean nonAnon) throws SQLException, ParseException
+    {
+        List<HarvestedItemInfo> infoObjects = new LinkedList<HarvestedItemInfo>();
+        int lastID = afterID;
+        boolean more = true;
+
+        // Items without anonymous access may be skipped, so a range may need
+        // to be followed by another to fill the harvest
+        while (more && ((limit == 0) || (infoObjects.size() < limit)))
+        {
+            int wanted = (limit == 0) ? 0 : limit - infoObjects.size();
+            List<Serializable> parameters = new ArrayList<Serializable>();
+            String query = harvestQuery(context, scope, startDate, endDate, lastID, wanted, withdrawn, parameters);
+
+            TableRowIterator tri = DatabaseManager.query(context, query, parameters.toArray());
+            int read = 0;
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow row = tri.next();
+                    read++;
+                    lastID = row.getIntColumn("resource_id");
+                    HarvestedItemInfo itemInfo = harvestedItem(context, row, items, collections, withdrawn, nonAnon);
+                    if (itemInfo != null)
+                    {
+                        infoObjects.add(itemInfo);
+                    }
+                }
+            }
+            finally
+            {
+                // close the TableRowIterator to free up resources
+                if (tri != null)
+                {
+                    tri.close();
+                }
+            }
+
+            // a short range means there are no more matching items
+            more = (wanted > 0) && (read == wanted);
+        }
+
+        return infoObjects;
+    }
+
+    /**
+     * Obtain information about items that have been created, modified or
+     * withdrawn within a given date range, as <code>harvest</code> does, but
+     * as an iterator reading one partial harvest of at most
+     * <code>pageSize</code> items at a time. Only one page is held in memory,
+     * and items of earlier pages are removed from the context cache, so
+     * whole-repository harvests run in constant memory.
+     * <P>
+     * Database errors reading a later page are thrown from the iterator
+     * as IllegalStateExceptions.
+     *
+     * @param context
+     *            DSpace context, which must stay open while iterating
+     * @param scope
+     *            a Collection, Community, or <code>null</code> indicating the scope is
+     *            all of DSpace
+     * @param startDate
+     *            start of date range, or <code>null</code>
+     * @param endDate
+     *            end of date range, or <code>null</code>
+     * @param pageSize
+     *            the number of items read at a time
+     * @param items
+     *            if <code>true</code> the <code>item</code> field of each
+     *            <code>HarvestedItemInfo</code> object is filled out
+     * @param collections
+     *            if <code>true</code> the <code>collectionHandles</code>
+     *            field of each <code>HarvestedItemInfo</code> object is
+     *            filled out
+     * @param withdrawn
+     *            If <code>true</code>, information about withdrawn items is
+     *            included
+     * @param nonAnon
+     *            If items without anonymous access should be included or not
+     * @return Iterator of <code>HarvestedItemInfo</code> objects
+     * @throws java.sql.SQLException
+     * @throws java.text.ParseException If the date is not in a supported format
+     */
+    public static Iterator<HarvestedItemInfo> harvestIterator(Context context, DSpaceObject scope,
+            String startDate, String endDate, int pageSize,
+            boolean items, boolean collections, boolean withdrawn,
+            boolean nonAnon) throws SQLException, ParseException
+    {
+        if (pageSize <= 0)
+        {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return new HarvestIterator(context, scope, startDate, endDate, pageSize,
+                                   items, collections, withdrawn, nonAnon);
+    }
 
+    /**
+     * Builds the harvest query, adding its parameters to the passed list.
+     * Items are ordered by ID; if afterID is not -1 only items with greater
+     * IDs are selected, and if limit is not 0 at most that many.
+     */
+    private static String harvestQuery(Context context, DSpaceObject scope,
+            String startDate, String endDate, int afterID, int limit,
+            boolean withdrawn, List<Serializable> parameters) throws ParseException
+    {
         // Put together our query. Note there is no need for an
         // "in_archive=true" condition, we are using the existence of
         // Handles as our 'existence criterion'.
-        // FIXME: I think the "DISTINCT" is redundant
-        String query = "SELECT DISTINCT handle.handle, handle.resource_id, item.withdrawn, item.last_modified FROM handle, item";
-
+        // An item has one Handle, and is mapped once to a collection, but may
+        // be reached through several collections of a community, so only
+        // community harvests need DISTINCT, which would otherwise sort all
+        // matching items before the first could be returned
+        boolean community = (scope != null) && (scope.getType() == Constants.COMMUNITY);
+        String query = "SELECT " + (community ? "DISTINCT " : "") +
+                       "handle.handle, handle.resource_id, item.withdrawn, item.last_modified FROM handle, item";
 
         // We are building a complex query that may contain a variable
         // about of input data points. To accommodate this while still
         // providing type safety we build a list of parameters to be
         // plugged into the query at the database level.
-        List<Serializable> parameters = new ArrayList<Serializable>();
 
         if (scope != null)
         {
@@ -175,84 +370,62 @@ public class Harvest
             query += " AND withdrawn=false ";
         }
 
+        if (afterID != -1)
+        {
+            // Continue from the last item of a partial harvest
+            query += " AND handle.resource_id > ? ";
+            parameters.add(Integer.valueOf(afterID));
+        }
+
         // Order by item ID, so that for a given harvest the order will be
         // consistent. This is so that big harvests can be broken up into
         // several smaller operations (e.g. for OAI resumption tokens.)
         query += " ORDER BY handle.resource_id";
 
-        log.debug(LogManager.getHeader(context, "harvest SQL", query));
+        if (limit > 0)
+        {
+            query += " LIMIT " + limit;
+        }
 
-        Object[] parametersArray = parameters.toArray();
-        TableRowIterator tri = DatabaseManager.query(context, query, parametersArray);
-        List<HarvestedItemInfo> infoObjects = new LinkedList<HarvestedItemInfo>();
+        log.debug(LogManager.getHeader(context, "harvest SQL", query));
 
-        // Count of items read from the record set that match the selection criteria.
-        // Note : Until 'index > offset' the records are not added to the output set.
-        int index = 0;
+        return query;
+    }
 
-        // Count of items added to the output set.
-        int itemCounter = 0;
+    /**
+     * Returns the harvested item info of a row of the harvest query, or null
+     * if the item should not be harvested as it lacks anonymous access.
+     */
+    private static HarvestedItemInfo harvestedItem(Context context, TableRow row,
+            boolean items, boolean collections, boolean withdrawn,
+            boolean nonAnon) throws SQLException
+    {
+        HarvestedItemInfo itemInfo = new HarvestedItemInfo();
+        itemInfo.context = context;
+        itemInfo.handle = row.getStringColumn("handle");
+        itemInfo.itemID = row.getIntColumn("resource_id");
+        itemInfo.datestamp = row.getDateColumn("last_modified");
+        itemInfo.withdrawn = row.getBooleanColumn("withdrawn");
 
-        try
+        if (collections)
         {
-            // Process results of query into HarvestedItemInfo objects
-            while ((tri.hasNext()) && ((limit == 0) || (itemCounter < limit)))
-            {
-                TableRow row = tri.next();
-
-                HarvestedItemInfo itemInfo = new HarvestedItemInfo();
-                itemInfo.context = context;
-                itemInfo.handle = row.getStringColumn("handle");
-                itemInfo.itemID = row.getIntColumn("resource_id");
-                itemInfo.datestamp = row.getDateColumn("last_modified");
-                itemInfo.withdrawn = row.getBooleanColumn("withdrawn");
-
-                if (collections)
-                {
-                    // Add collections data
-                    fillCollections(context, itemInfo);
-                }
-
-                if (items)
-                {
-                    // Add the item reference
-                    itemInfo.item = Item.find(context, itemInfo.itemID);
-                }
+            // Add collections data
+            fillCollections(context, itemInfo);
+        }
 
-                if ((nonAnon) || (itemInfo.item == null) || (withdrawn && itemInfo.withdrawn))
-                {
-                    index++;
-                    if (index > offset)
-                    {
-                        infoObjects.add(itemInfo);
-                        itemCounter++;
-                    }
-                }
-                else
-                {
-                    // We only want items that allow for anonymous access.
-                    if (anonAccessAllowed(context, itemInfo))
-                    {
-                        index++;
-                        if (index > offset)
-                        {
-                            infoObjects.add(itemInfo);
-                            itemCounter++;
-                        }
-                    }
-                }
-            }
+        if (items)
+        {
+            // Add the item reference
+            itemInfo.item = Item.find(context, itemInfo.itemID);
         }
-        finally
+
+        if ((nonAnon) || (itemInfo.item == null) || (withdrawn && itemInfo.withdrawn))
         {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
+            return itemInfo;
         }
 
-        return infoObjects;
+        // We only want items that allow for anonymous access.
+        return anonAccessAllowed(context, itemInfo) ? itemInfo : null;
     }
 
     /**
@@ -341,6 +514,91 @@ public class Harvest
     }
 
 
+    // iterates over a harvest one partial harvest at a time
+    private static class HarvestIterator implements Iterator<HarvestedItemInfo>
+    {
+        private final Context context;
+        private final DSpaceObject scope;
+        private final String startDate;
+        private final String endDate;
+        private final int pageSize;
+        private final boolean items;
+        private final boolean collections;
+        private final boolean withdrawn;
+        private final boolean nonAnon;
+
+        /** the current page, and the position in it */
+        private List<HarvestedItemInfo> page;
+        private int position = 0;
+
+        HarvestIterator(Context context, DSpaceObject scope, String startDate, String endDate,
+                int pageSize, boolean items, boolean collections, boolean withdrawn,
+                boolean nonAnon) throws SQLException, ParseException
+        {
+            this.context = context;
+            this.scope = scope;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.pageSize = pageSize;
+            this.items = items;
+            this.collections = collections;
+            this.withdrawn = withdrawn;
+            this.nonAnon = nonAnon;
+            page = new ArrayList<HarvestedItemInfo>(harvestAfter(context, scope, startDate, endDate,
+                    -1, pageSize, items, collections, withdrawn, nonAnon));
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (position == page.size() && page.size() == pageSize)
+            {
+                // a full page may be followed by another
+                int lastID = page.get(page.size() - 1).itemID;
+                decache();
+                try
+                {
+                    page = new ArrayList<HarvestedItemInfo>(harvestAfter(context, scope, startDate, endDate,
+                            lastID, pageSize, items, collections, withdrawn, nonAnon));
+                }
+                catch (SQLException | ParseException e)
+                {
+                    throw new IllegalStateException("Unable to read harvest after item " + lastID, e);
+                }
+                position = 0;
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public HarvestedItemInfo next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("remove not supported");
+        }
+
+        // drops the items of the current page from the context cache
+        private void decache()
+        {
+            for (HarvestedItemInfo itemInfo : page)
+            {
+                if (itemInfo.item != null)
+                {
+                    context.removeCached(itemInfo.item, itemInfo.itemID);
+                }
+            }
+        }
+    }
+
     /**
      * Convert a String to a java.sql.Timestamp object
      *
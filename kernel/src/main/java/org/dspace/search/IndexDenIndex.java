@@ -80,6 +80,12 @@ public class IndexDenIndex implements IndexService {
     
     public IndexDenIndex() {}
      
+    @Override
+    public Map<String, Long> getLastIndexed() throws IOException {
+        // would require fetching every document
+        return null;
+    }
+
     /**
      * Is stale checks the lastModified time stamp in the database and the index
      * to determine if the index is stale.
@@ -9,6 +9,7 @@ package org.dspace.search;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * Interface for indexing and querying structured content.
@@ -39,6 +40,15 @@ public interface IndexService {
      * @return true if index older than modification date, else false
      */
     boolean isDocumentStale(String documentKey, Date lastmodified) throws IOException;
+
+    /**
+     * Returns the last indexed times of all Documents, for checking the
+     * currency of many Documents at once.
+     *
+     * @return map of document identifiers to last indexed times (in ms),
+     *         or null if not supported - when isDocumentStale must be used
+     */
+    Map<String, Long> getLastIndexed() throws IOException;
     
     /**
      * Performs a query on an index.
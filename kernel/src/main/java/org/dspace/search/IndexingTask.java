@@ -7,6 +7,7 @@
  */
 package org.dspace.search;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.HashSet;
@@ -78,4 +79,20 @@ public class IndexingTask {
     public Collection<InputStream> getStreamValues(String key) {
         return (streams != null) ? streams.get(key) : new HashSet<InputStream>();
     }
+
+    /**
+     * Closes any data streams, e.g. when the task is superseded before
+     * it is performed.
+     */
+    void closeStreams() {
+        if (streams != null) {
+            for (InputStream is : streams.values()) {
+                try {
+                    is.close();
+                } catch (IOException ioE) {
+                    // nothing more to be done
+                }
+            }
+        }
+    }
 }
@@ -18,11 +18,19 @@ import java.io.StringWriter;
 import java.lang.reflect.Constructor;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
@@ -36,30 +44,43 @@ import org.apache.lucene.analysis.miscellaneous.LimitTokenCountAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.DateTools;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.AtomicReader;
-import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocsEnum;
 import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.queryparser.flexible.standard.parser.TokenMgrError;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.SortField.Type;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
@@ -83,9 +104,43 @@ import static org.dspace.search.DSIndexer.*;
  * (assignment of indexing attributes to fields, etc) is hard-coded
  * here (as it was in the original DSIndexer) - a more flexible
  * approach would make it file configurable as the SOLR service is.
- * Also, the threading model seems defective, if configured in
- * valid ways, collisions over IndexWriters seems possible.
- * For further analysis and refactor. Essentially bypassed for now.
+ *
+ * All changes are made with one IndexWriter, opened on the first change
+ * and shared by all threads. Changes are committed once a number of
+ * documents have changed, or after an interval, and at the end of a batch.
+ * As other processes (e.g. command-line tools) may write to the same index,
+ * the writer is closed, releasing the index write lock, after a period
+ * without changes. Searches use reference-counted searchers from a
+ * SearcherManager, which is refreshed at an interval: near-real-time
+ * searchers, which see uncommitted changes, while the writer is open, and
+ * searchers of the last commit otherwise.
+ * <p>
+ * In batches, or if a flush delay is configured, document updates and
+ * deletions are queued rather than made at once. The queue holds at most
+ * one change per document - the latest, so a deletion supersedes an update
+ * - and is flushed to the writer when it is full, after the delay, at the
+ * end of a batch and at shutdown. Bursts of changes to a document thus
+ * make one index change. Queued changes are not seen by searches.
+ * <p>
+ * Configuration (modules/search.cfg):
+ * <ul>
+ * <li>commit.documents - number of changed documents after which changes are
+ * committed (default 1000)</li>
+ * <li>commit.interval - seconds after which changes are committed, unless in
+ * a batch (default 5)</li>
+ * <li>searcher.refresh - milliseconds between searcher refreshes, i.e. the
+ * most that searches lag changes (default 1000)</li>
+ * <li>writer.keepalive - seconds without changes after which the writer is
+ * closed, 0 to keep it open (default commit.interval). Other processes wait
+ * at most 30 seconds for the write lock, so a longer keepalive makes
+ * command-line index updates fail while this process keeps changing the
+ * index</li>
+ * <li>flush.delay - milliseconds changes are queued outside batches, -1 to
+ * make them at once (default -1)</li>
+ * <li>batch.documents - number of queued changes at which the queue is
+ * flushed (default 20). Queued updates hold the streams of their bitstreams
+ * open until flushed, so this also bounds open files and buffered text</li>
+ * </ul>
  *
  * @author richardrodgers
  */
@@ -95,16 +150,20 @@ public class LuceneIndex implements IndexService
 
     private static final long WRITE_LOCK_TIMEOUT = 30000 /* 30 sec */;
 
-    private Thread delayedIndexFlusher = null;
-    private int indexFlushDelay = ConfigurationManager.getIntProperty("search", "flush.delay", -1);
+    private final int commitDocuments = ConfigurationManager.getIntProperty("search", "commit.documents", 1000);
+    private final long commitInterval = ConfigurationManager.getIntProperty("search", "commit.interval", 5) * 1000L;
+    private final long refreshInterval = ConfigurationManager.getIntProperty("search", "searcher.refresh", 1000);
+    private final long writerKeepAlive =
+            ConfigurationManager.getIntProperty("search", "writer.keepalive", (int)(commitInterval / 1000)) * 1000L;
 
-    private int batchFlushAfterDocuments = ConfigurationManager.getIntProperty("search", "batch.documents", 20);
+    private final long flushDelay = ConfigurationManager.getIntProperty("search", "flush.delay", -1);
+    private final int batchDocuments = ConfigurationManager.getIntProperty("search", "batch.documents", 20);
 
-    private boolean batchProcessingMode = false;
+    private volatile boolean batchProcessingMode = false;
 
     // search field schema - hard-coded here, but could easily be made more configurable
     private static final Map<String, FieldConfig> schema = new HashMap<String, FieldConfig>() {{
-    	put(LAST_INDEXED_FIELD,    new FieldConfig(LAST_INDEXED_FIELD, "text", Field.Store.YES, Field.Index.NOT_ANALYZED));
+    	put(LAST_INDEXED_FIELD,    new FieldConfig(LAST_INDEXED_FIELD, "millis", Field.Store.YES, Field.Index.NOT_ANALYZED));
     	put(DOCUMENT_STATUS_FIELD, new FieldConfig(DOCUMENT_STATUS_FIELD, "text", Field.Store.YES, Field.Index.NOT_ANALYZED));
     	put(DOCUMENT_KEY,          new FieldConfig(DOCUMENT_KEY, "text", Field.Store.YES, Field.Index.NOT_ANALYZED));
     	put("search.resourcetype", new FieldConfig("search.resourcetype", "text", Field.Store.YES, Field.Index.NOT_ANALYZED));
@@ -124,10 +183,34 @@ public class LuceneIndex implements IndexService
     /** The analyzer for this DSpace instance */
     private volatile Analyzer analyzer = null;
 
-    // cache a Lucene IndexSearcher for more efficient searches
-    private static IndexSearcher searcher = null;
+    private Directory directory;
+
+    // the shared writer, or null when not open
+    private volatile IndexWriter writer;
+
+    // read-locked to make changes with the writer, write-locked to close it
+    private final ReadWriteLock writerLock = new ReentrantReadWriteLock();
+
+    // number of changes not yet committed, and times of the last change and commit
+    private final AtomicInteger uncommitted = new AtomicInteger();
+    private volatile long lastChange;
+    private volatile long lastCommit;
+
+    // source of searchers - replaced as the writer is opened or closed
+    private volatile SearcherManager searcherManager;
+
+    // queued changes by document key, in order queued, and when the first was queued
+    private Map<String, IndexingTask> queue = new LinkedHashMap<String, IndexingTask>();
+    private long queuedSince;
 
-    private static long lastModified;
+    // held while flushing, so queued changes are made in order
+    private final Object flushLock = new Object();
+
+    // number of queued changes superseded by later changes
+    private static final Counter coalesced = ConfigurationManager.metrics.counter(MetricRegistry.name(LuceneIndex.class, "coalesced"));
+
+    // runs queue flushes, commits, searcher refreshes and writer closes
+    private ScheduledExecutorService maintainer;
 
     public LuceneIndex() {}
 
@@ -142,10 +225,11 @@ public class LuceneIndex implements IndexService
         }
     }
 
-    public void setBatchProcessingMode(boolean mode) {
+    public void setBatchProcessingMode(boolean mode) throws IOException {
         batchProcessingMode = mode;
         if (mode == false) {
-            flushIndexingTaskQueue();
+            flush();
+            commit();
         }
     }
 
@@ -188,191 +272,269 @@ public class LuceneIndex implements IndexService
     }
 
 
-    void processIndexingTask(IndexingTask task) throws IOException {
-        if (batchProcessingMode) {
-            addToIndexingTaskQueue(task);
-        } else if (indexFlushDelay > 0) {
-            addToIndexingTaskQueue(task);
-            startDelayedIndexFlusher();
-        } else {
-            IndexWriter writer = null;
-            try  {
-                writer = openIndex(false);
-                executeIndexingTask(writer, task);
-            } finally {
-                //if (task.getDocument() != null)
-                //{
-                //    closeAllReaders(task.getDocument());
-                //}
-
-                if (writer != null)
-                {
-                    try
-                    {
-                        writer.close();
-                    }
-                    catch (IOException e)
-                    {
-                        log.error("Unable to close IndexWriter", e);
-                    }
+    /**
+	 * Is stale checks the lastModified time stamp in the database and the index
+	 * to determine if the index is stale.
+	 *
+	 * @param lastModified
+	 * @throws IOException
+	 */
+    @Override
+    public boolean isDocumentStale(String documentKey, Date lastModified)  throws IOException {
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            TopDocs docs = searcher.search(new TermQuery(new Term(DOCUMENT_KEY, documentKey)), 10);
+            if (docs.totalHits == 0) {
+                return true;
+            }
+            List<AtomicReaderContext> leaves = searcher.getIndexReader().leaves();
+            for (ScoreDoc scoreDoc : docs.scoreDocs) {
+                AtomicReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+                if (lastIndexed(leaf.reader(), scoreDoc.doc - leaf.docBase) < lastModified.getTime()) {
+                    return true;
                 }
             }
+            return false;
+        } finally {
+            releaseSearcher(searcher);
         }
     }
 
-    private static void executeIndexingTask(IndexWriter writer, IndexingTask action) throws IOException {
-        if (action != null)
-        {
-        	/*
-            if (action.isDelete())
-            {
-                if (action.getDocument() != null)
-                {
-                    writer.updateDocument(action.getTerm(), action.getDocument());
+    /**
+     * Returns the last indexed times of all documents, read from the
+     * document keys and last indexed doc values of each index segment,
+     * without loading documents.
+     */
+    @Override
+    public Map<String, Long> getLastIndexed() throws IOException {
+        Map<String, Long> lastIndexed = new HashMap<String, Long>();
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            for (AtomicReaderContext leaf : searcher.getIndexReader().leaves()) {
+                AtomicReader reader = leaf.reader();
+                Terms keys = reader.terms(DOCUMENT_KEY);
+                if (keys == null) {
+                    continue;
                 }
-                else
-                {
-                    writer.deleteDocuments(action.getTerm());
+                TermsEnum keyEnum = keys.iterator(null);
+                DocsEnum docsEnum = null;
+                BytesRef key;
+                while ((key = keyEnum.next()) != null) {
+                    docsEnum = keyEnum.docs(reader.getLiveDocs(), docsEnum, DocsEnum.FLAG_NONE);
+                    int doc;
+                    while ((doc = docsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+                        lastIndexed.put(key.utf8ToString(), lastIndexed(reader, doc));
+                    }
                 }
             }
-            else
-            {
-                writer.updateDocument(action.getTerm(), action.getDocument());
-            }
-            */
+        } finally {
+            releaseSearcher(searcher);
         }
+        return lastIndexed;
     }
 
-    private  Map<String, IndexingTask> queuedTaskMap = new HashMap<String, IndexingTask>();
+    ////////////////////////////////////
+    //      Private
+    ////////////////////////////////////
 
-    synchronized void addToIndexingTaskQueue(IndexingTask action)
-    {
-        if (action != null)
-        {
-           // queuedTaskMap.put(action.getTerm().text(), action);
-            if (queuedTaskMap.size() >= batchFlushAfterDocuments)
-            {
-                flushIndexingTaskQueue();
-            }
+    /**
+     * Returns the last indexed time of a document of a segment, from doc
+     * values or, for documents indexed before these were added, the stored
+     * field; or -1 if it has neither.
+     */
+    private static long lastIndexed(AtomicReader reader, int doc) throws IOException {
+        Bits withValues = reader.getDocsWithField(LAST_INDEXED_FIELD);
+        if (withValues != null && withValues.get(doc)) {
+            return reader.getNumericDocValues(LAST_INDEXED_FIELD).get(doc);
         }
+        IndexableField stored = reader.document(doc, Collections.singleton(LAST_INDEXED_FIELD)).getField(LAST_INDEXED_FIELD);
+        return (stored != null) ? Long.parseLong(stored.stringValue()) : -1L;
     }
 
-    void flushIndexingTaskQueue()
-    {
-        if (queuedTaskMap.size() > 0)
-        {
-            IndexWriter writer = null;
+    /**
+     * Returns the shared writer, opening it if not open. Callers must hold
+     * the read lock.
+     */
+    private synchronized IndexWriter getWriter() throws IOException {
+        if (writer == null) {
+            IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_36, getAnalyzer());
+            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            writer = new IndexWriter(directory, iwc);
+            // searches now also see changes not yet committed
+            setSearcherManager(new SearcherManager(writer, true, null));
+        }
+        return writer;
+    }
 
-            try
-            {
-                writer = openIndex(false);
-                flushIndexingTaskQueue(writer);
-            }
-            catch (IOException e)
-            {
-                log.error("Error flushing", e);
-            }
-            finally
-            {
-                if (writer != null)
-                {
-                    try
-                    {
+    /**
+     * Closes the shared writer, if open, committing its changes and releasing
+     * the index write lock.
+     */
+    private void closeWriter() throws IOException {
+        writerLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                if (writer != null) {
+                    try {
+                        uncommitted.set(0);
                         writer.close();
-                    }
-                    catch (IOException ex)
-                    {
-                        log.error("Error closing writer", ex);
+                    } finally {
+                        writer = null;
+                        setSearcherManager(new SearcherManager(directory, null));
                     }
                 }
             }
+        } finally {
+            writerLock.writeLock().unlock();
         }
     }
 
-    private synchronized void flushIndexingTaskQueue(IndexWriter writer)
-    {
-        for (IndexingTask action : queuedTaskMap.values())
-        {
-            try
-            {
-                executeIndexingTask(writer, action);
-            }
-            catch (IOException e)
-            {
-                log.error("Error indexing", e);
+    /**
+     * Commits the changes made with the shared writer, if open, and
+     * refreshes searchers to see them.
+     */
+    private void commit() throws IOException {
+        writerLock.readLock().lock();
+        try {
+            IndexWriter iw = writer;
+            if (iw != null) {
+                commit(iw);
             }
-           // finally
-           // {
-                //if (action.getDocument() != null)
-                //{
-                //    closeAllReaders(action.getDocument());
-                //}
-           // }
+        } finally {
+            writerLock.readLock().unlock();
         }
+        refreshSearcher();
+    }
 
-        queuedTaskMap.clear();
-
-        // We've flushed, so we don't need this thread
-        if (delayedIndexFlusher != null)
-        {
-            delayedIndexFlusher.interrupt();
-            delayedIndexFlusher = null;
+    // commits the writer's changes - callers must hold the read lock
+    private void commit(IndexWriter iw) throws IOException {
+        int count = uncommitted.getAndSet(0);
+        if (count > 0) {
+            try {
+                iw.commit();
+                lastCommit = System.currentTimeMillis();
+            } catch (IOException | RuntimeException e) {
+                uncommitted.addAndGet(count);
+                throw e;
+            }
         }
     }
 
-    ////////////////////////////////////
-    //      Private
-    ////////////////////////////////////
-
     /**
-	 * Is stale checks the lastModified time stamp in the database and the index
-	 * to determine if the index is stale.
-	 *
-	 * @param lastModified
-	 * @throws SQLException
-	 * @throws IOException
-	 */
-    @Override
-    public boolean isDocumentStale(String documentKey, Date lastModified)  throws IOException {
+     * Updates or deletes the document with a key, using the shared writer.
+     *
+     * @param documentKey the document key
+     * @param doc the new document, or null to delete the document
+     */
+    private void write(String documentKey, Document doc) throws IOException {
+        Term term = new Term(DOCUMENT_KEY, documentKey);
+        writerLock.readLock().lock();
+        try {
+            IndexWriter iw = getWriter();
+            if (doc != null) {
+                iw.updateDocument(term, doc);
+            } else {
+                iw.deleteDocuments(term);
+            }
+            lastChange = System.currentTimeMillis();
+            if (uncommitted.incrementAndGet() >= commitDocuments) {
+                commit(iw);
+            }
+        } finally {
+            writerLock.readLock().unlock();
+            if (doc != null) {
+                closeAllReaders(doc);
+            }
+        }
+    }
 
-		boolean reindexItem = false;
-		boolean inIndex = false;
+    /**
+     * Deletes all documents from the index.
+     */
+    private void purge() throws IOException {
+        writerLock.readLock().lock();
+        try {
+            getWriter().deleteAll();
+            lastChange = System.currentTimeMillis();
+            uncommitted.incrementAndGet();
+        } finally {
+            writerLock.readLock().unlock();
+        }
+        commit();
+    }
 
-		IndexReader ir = getSearcher().getIndexReader();
-		Term t = new Term("handle", documentKey);
-    AtomicReader ar = (AtomicReader)ir;
-		DocsEnum docsE = ar.termDocsEnum(t);
+    /**
+     * Commits changes due to be committed, closes the writer if idle, and
+     * refreshes searchers. Run periodically.
+     */
+    private void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            if (! batchProcessingMode) {
+                if (flushDelay > 0 && isFlushDue(now)) {
+                    flush();
+                }
+                if (uncommitted.get() > 0 && now - lastCommit >= commitInterval) {
+                    commit();
+                }
+                if (writerKeepAlive > 0 && writer != null && now - lastChange >= writerKeepAlive) {
+                    closeWriter();
+                }
+            }
+            refreshSearcher();
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to maintain search index", e);
+        }
+    }
 
-    int docId;
-		while((docId = docsE.nextDoc()) != DocsEnum.NO_MORE_DOCS) {
-			inIndex = true;
-			Document doc = ir.document(docId);
+    // replaces the searcher manager, closing the old - searchers acquired from it remain usable until released
+    private void setSearcherManager(SearcherManager manager) throws IOException {
+        SearcherManager old = searcherManager;
+        searcherManager = manager;
+        if (old != null) {
+            old.close();
+        }
+    }
 
-			IndexableField lastIndexed = doc.getField(LAST_INDEXED_FIELD);
+    private void refreshSearcher() throws IOException {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (AlreadyClosedException ace) {
+            // replaced meanwhile, by a manager with current searchers
+        }
+    }
 
-			if (lastIndexed == null || Long.parseLong(lastIndexed.stringValue()) <
-					lastModified.getTime()) {
-				reindexItem = true;
-			}
-		}
+    /**
+     * Returns a current searcher, which must be handed back to
+     * <code>releaseSearcher</code> after use.
+     */
+    private IndexSearcher acquireSearcher() {
+        while (true) {
+            try {
+                return searcherManager.acquire();
+            } catch (AlreadyClosedException ace) {
+                // replaced meanwhile - acquire from the new manager
+            }
+        }
+    }
 
-		return reindexItem || !inIndex;
-	}
+    private void releaseSearcher(IndexSearcher searcher) throws IOException {
+        // as SearcherManager.release, so whichever manager it came from
+        searcher.getIndexReader().decRef();
+    }
 
     /**
-     * prepare index, opening writer, and wiping out existing index if necessary
+     * Commits and closes the index, at shutdown.
      */
-    private IndexWriter openIndex(boolean wipeExisting) throws IOException {
-        Directory dir = FSDirectory.open(new File(indexDirectory));
-        IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_36, getAnalyzer());
-        if(wipeExisting){
-            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        }else{
-            iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+    private void shutdown() {
+        maintainer.shutdownNow();
+        try {
+            flush();
+            closeWriter();
+            searcherManager.close();
+        } catch (IOException e) {
+            log.error("Unable to close search index", e);
         }
-
-        IndexWriter writer = new IndexWriter(dir, iwc);
-        return writer;
     }
 
     @Override
@@ -380,31 +542,12 @@ public class LuceneIndex implements IndexService
 
     	switch (task.getAction()) {
     		case DELETE:
-    			commit(task.getFieldValue(DOCUMENT_KEY), null, false);
-    			break;
     		case UPDATE:
-    			Document doc = new Document();
-    			// add in fields
-    			for (String key : task.getFieldKeys()) {
-    				// get config for field
-    				FieldConfig fc = schema.get(key);
-    				if (fc != null) {
-    					for (String value : task.getFieldValues(key)) {
-    						mapValue(value, fc, doc);
-    	    				// all get mapped to 'default' index
-    	    				mapValue(value, schema.get("default"), doc);
-    					}
-    				} else {
-    					log.error("Invalid field map - field: '" + key + "' undefined in schema");
-    				}
+    			if (batchProcessingMode || flushDelay > 0) {
+    				enqueue(task);
+    			} else {
+    				perform(task);
     			}
-    			// likewise any streams
-    			for (String key : task.getStreamKeys()) {
-    				for (InputStream is : task.getStreamValues(key)) {
-    					doc.add(new Field("default", new BufferedReader(new InputStreamReader(is))));
-    				}
-    			}
-    			commit(task.getFieldValue(DOCUMENT_KEY), doc, true);
     			break;
     		case TX_BEGIN:
     			setBatchProcessingMode(true);
@@ -413,13 +556,114 @@ public class LuceneIndex implements IndexService
     			setBatchProcessingMode(false);
     			break;
     		case PURGE:
-    			openIndex(true).close();
+    			discardQueue();
+    			purge();
     			break;
     		default:
     		  break;
     	}
     }
 
+    /**
+     * Makes the change of an update or delete task.
+     */
+    private void perform(IndexingTask task) throws IOException {
+    	if (task.getAction() == IndexingTask.Action.DELETE) {
+    		write(task.getFieldValue(DOCUMENT_KEY), null);
+    	} else {
+    		Document doc = new Document();
+    		// add in fields
+    		for (String key : task.getFieldKeys()) {
+    			// get config for field
+    			FieldConfig fc = schema.get(key);
+    			if (fc != null) {
+    				for (String value : task.getFieldValues(key)) {
+    					mapValue(value, fc, doc);
+    					// all get mapped to 'default' index
+    					mapValue(value, schema.get("default"), doc);
+    				}
+    			} else {
+    				log.error("Invalid field map - field: '" + key + "' undefined in schema");
+    			}
+    		}
+    		// likewise any streams
+    		for (String key : task.getStreamKeys()) {
+    			for (InputStream is : task.getStreamValues(key)) {
+    				doc.add(new Field("default", new BufferedReader(new InputStreamReader(is))));
+    			}
+    		}
+    		write(task.getFieldValue(DOCUMENT_KEY), doc);
+    	}
+    }
+
+    /**
+     * Queues an update or delete task, superseding any queued for the same
+     * document, and flushes the queue if full.
+     */
+    private void enqueue(IndexingTask task) throws IOException {
+        boolean full;
+        synchronized (this) {
+            // re-inserted, so changes are made in the order last queued
+            IndexingTask previous = queue.remove(task.getFieldValue(DOCUMENT_KEY));
+            if (previous != null) {
+                previous.closeStreams();
+                coalesced.inc();
+            } else if (queue.isEmpty()) {
+                queuedSince = System.currentTimeMillis();
+            }
+            queue.put(task.getFieldValue(DOCUMENT_KEY), task);
+            full = queue.size() >= batchDocuments;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    private synchronized boolean isFlushDue(long now) {
+        return ! queue.isEmpty() && now - queuedSince >= flushDelay;
+    }
+
+    /**
+     * Makes the queued changes. Every change is attempted, and the first
+     * failure then rethrown.
+     */
+    private void flush() throws IOException {
+        synchronized (flushLock) {
+            Map<String, IndexingTask> tasks = takeQueue();
+            IOException failure = null;
+            for (IndexingTask task : tasks.values()) {
+                try {
+                    perform(task);
+                } catch (IOException e) {
+                    log.error("Unable to index " + task.getFieldValue(DOCUMENT_KEY), e);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    task.closeStreams();
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Discards the queued changes, e.g. when the index is purged.
+     */
+    private void discardQueue() {
+        for (IndexingTask task : takeQueue().values()) {
+            task.closeStreams();
+        }
+    }
+
+    // empties the queue, returning the queued tasks
+    private synchronized Map<String, IndexingTask> takeQueue() {
+        Map<String, IndexingTask> tasks = queue;
+        queue = new LinkedHashMap<String, IndexingTask>();
+        return tasks;
+    }
+
     @Override
     public QueryResults doQuery(QueryArgs args) throws IOException {
         String querystring = args.getQuery();
@@ -441,9 +685,9 @@ public class LuceneIndex implements IndexService
         querystring = DSQuery.stripHandles(querystring); // remove handles from query string
         querystring = DSQuery.stripAsterisk(querystring); // remove asterisk from beginning of string
 
+        // grab a searcher, and do the search
+        IndexSearcher searcher = acquireSearcher();
         try  {
-            // grab a searcher, and do the search
-            IndexSearcher searcher = getSearcher();
             // FIXME
             QueryParser qp = new QueryParser(Version.LUCENE_36, "default", getAnalyzer());
             log.debug("Final query string: " + querystring);
@@ -516,6 +760,8 @@ public class LuceneIndex implements IndexService
         }  catch(BooleanQuery.TooManyClauses e) {
             log.warn("Query too broad", e.toString());
             qr.setErrorMsg("query-too-broad");
+        } finally {
+            releaseSearcher(searcher);
         }
 
     	return qr;
@@ -556,46 +802,44 @@ public class LuceneIndex implements IndexService
     @Override
     public void init(String config) {
         indexDirectory = config;
+        // set maxfieldlength
+        maxFieldLength = ConfigurationManager.getIntProperty("search", "maxfieldlength", -1);
         File indexDir = new File(indexDirectory);
         try {
-            if (! DirectoryReader.indexExists(FSDirectory.open(indexDir))) {
+            directory = FSDirectory.open(indexDir);
+            if (! DirectoryReader.indexExists(directory)) {
                 indexDir.mkdirs();
-                openIndex(true).close();
+                IndexWriterConfig iwc = new IndexWriterConfig(Version.LUCENE_36, getAnalyzer());
+                iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+                new IndexWriter(directory, iwc).close();
             }
+            searcherManager = new SearcherManager(directory, null);
         } catch (IOException e) {
             throw new IllegalStateException("Could not create search index: " + e.getMessage(),e);
         }
-        // set maxfieldlength
-        maxFieldLength = ConfigurationManager.getIntProperty("search", "maxfieldlength", -1);
-    }
-
-    private void commit(String documentKey, Document doc, boolean update) throws IOException {
-        IndexWriter writer = null;
-        Term term = new Term(DOCUMENT_KEY, documentKey);
-        try {
-            writer = openIndex(false);
-            if (update) {
-            	writer.updateDocument(term, doc);
-            } else {
-            	writer.deleteDocuments(term);
+        maintainer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("lucene-index-%d").setDaemon(true).build());
+        maintainer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                maintain();
             }
-        } finally {
-            if (doc != null)
-            {
-                closeAllReaders(doc);
+        }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        // don't lose changes not yet committed when the process ends
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                shutdown();
             }
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (IOException e) {
-                    log.error("Unable to close IndexWriter", e);
-                }
-            }
-        }
+        });
     }
 
     private void mapValue(String value, FieldConfig fc, Document doc) {
-    	if ("timestamp".equals(fc.fieldType)) {
+    	if ("millis".equals(fc.fieldType)) {
+    		// also as doc values, for reading without loading documents
+    		doc.add(new Field(fc.fieldName, value, fc.store, fc.index));
+    		doc.add(new NumericDocValuesField(fc.fieldName, Long.parseLong(value)));
+    	} else if ("timestamp".equals(fc.fieldType)) {
     		Date date = toDate(value);
     		if (date != null) {
     			doc.add(new Field(fc.fieldName,
@@ -649,73 +893,6 @@ public class LuceneIndex implements IndexService
         }
     }
 
-    /**
-     * get an IndexSearcher, hopefully a cached one (gives much better
-     * performance.) checks to see if the index has been modified - if so, it
-     * creates a new IndexSearcher
-     */
-    protected synchronized IndexSearcher getSearcher() throws IOException {
-
-        // If we have already opened a searcher, check to see if the index has been updated
-        // If it has, we need to close the existing searcher - we will open a new one later
-        Directory searchDir = FSDirectory.open(new File(indexDirectory));
-        DirectoryReader idxReader = DirectoryReader.open(searchDir);//getSearcher().getIndexReader();
-        if (searcher != null && lastModified != idxReader.getVersion())
-        { /*
-            try
-            {
-                // Close the cached IndexSearcher
-                // RLR FIXME
-                //searcher.close();
-            }
-            catch (IOException ioe)
-            {
-                // Index is probably corrupt. Log the error, but continue to either:
-                // 1) Return existing searcher (may yet throw exception, no worse than throwing here)
-                log.warn("DSQuery: Unable to check for updated index", ioe);
-            }
-            finally
-            {
-            	searcher = null;
-            }
-            */
-        }
-
-        // There is no existing searcher - either this is the first execution,
-        // or the index has been updated and we closed the old index.
-        if (searcher == null)
-        {
-            // So, open a new searcher
-            lastModified = idxReader.getVersion();
-            String osName = System.getProperty("os.name");
-            // RLR TODO - check Read only restriction here
-            IndexReader reader = IndexReader.open(searchDir);
-            if (osName != null && osName.toLowerCase().contains("windows"))
-            {
-                searcher = new IndexSearcher(reader){
-                    /*
-                     * TODO: Has Lucene fixed this bug yet?
-                     * Lucene doesn't release read locks in
-                     * windows properly on finalize. Our hack
-                     * extend IndexSearcher to force close().
-                     */
-                    @Override
-                    protected void finalize() throws Throwable {
-                        //RLR FIXME
-                        //this.close();
-                        super.finalize();
-                    }
-                };
-            }
-            else
-            {
-                searcher = new IndexSearcher(reader);
-            }
-        }
-
-        return searcher;
-    }
-
     /**
      * Helper function to retrieve a date using a best guess of the potential date encodings on a field
      *
@@ -768,37 +945,6 @@ public class LuceneIndex implements IndexService
         return null;
     }
 
-    private synchronized void startDelayedIndexFlusher()
-    {
-        if (delayedIndexFlusher != null && !delayedIndexFlusher.isAlive())
-        {
-            delayedIndexFlusher = null;
-        }
-
-        if (delayedIndexFlusher == null && queuedTaskMap.size() > 0)
-        {
-            delayedIndexFlusher = new Thread(new DelayedIndexFlushThread());
-            delayedIndexFlusher.start();
-        }
-    }
-
-    private class DelayedIndexFlushThread implements Runnable
-    {
-        @Override
-        public void run()
-        {
-            try
-            {
-                Thread.sleep(indexFlushDelay);
-                flushIndexingTaskQueue();
-            }
-            catch (InterruptedException e)
-            {
-                log.debug("Delayed flush", e);
-            }
-        }
-    }
-
     private static class FieldConfig {
     	String fieldName;
     	String fieldType;
@@ -0,0 +1,259 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Joiner;
+import com.google.common.eventbus.Subscribe;
+
+import org.skife.jdbi.v2.PreparedBatch;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumes;
+import org.dspace.event.ContainerEvent;
+import org.dspace.event.ContentEvent;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * OAIRecordCache keeps rendered OAI-PMH records in the database (the
+ * oairecord table), by item and metadata prefix, so that harvests need not
+ * load items and run crosswalks for records that have not changed. Records
+ * are filled in lazily as they are rendered, and a record is only served
+ * while the item's last_modified date and sets (collections) are those it
+ * was rendered with.
+ * <p>
+ * When registered as an event subscriber, records of items modified,
+ * deleted, withdrawn, reinstated, or mapped to or from collections are
+ * removed once the changing transaction commits.
+ * <p>
+ * Configuration (modules/oai-pmh.cfg): record.cache.enabled - switch cache
+ * on or off (default false)
+ */
+@Consumes("content")
+public class OAIRecordCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OAIRecordCache.class);
+
+    private static final boolean enabled =
+            ConfigurationManager.getBooleanProperty("oai-pmh", "record.cache.enabled", false);
+
+    // maximum number of items looked up by one query
+    private static final int CHUNK = 500;
+
+    // metrics for cache effectiveness
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(OAIRecordCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(OAIRecordCache.class, "misses"));
+
+    public OAIRecordCache() {}
+
+    /**
+     * Reports whether records are cached.
+     *
+     * @return true if records are cached
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached records of harvested items, for a metadata prefix.
+     * Records rendered before the item was last modified, or while it was
+     * in other sets, are not returned.
+     *
+     * @param context the DSpace context, which may be read-only
+     * @param prefix the metadata prefix
+     * @param itemInfos the harvested items, with their collections
+     * @return the valid records, keyed by item ID
+     * @throws SQLException if a database error occurs
+     */
+    public static Map<Integer, String> getRecords(Context context, String prefix,
+                                                  List<HarvestedItemInfo> itemInfos) throws SQLException {
+        Map<Integer, String> records = new HashMap<Integer, String>();
+        for (int start = 0; start < itemInfos.size(); start += CHUNK) {
+            List<HarvestedItemInfo> chunk = itemInfos.subList(start, Math.min(start + CHUNK, itemInfos.size()));
+            Map<Integer, HarvestedItemInfo> byID = new HashMap<Integer, HarvestedItemInfo>();
+            List<Object> params = new ArrayList<Object>();
+            params.add(prefix);
+            StringBuilder sql = new StringBuilder("SELECT item_id, last_modified, set_specs, record FROM oairecord " +
+                                                  "WHERE metadata_prefix = ? AND item_id IN (");
+            for (HarvestedItemInfo itemInfo : chunk) {
+                sql.append((byID.size() > 0) ? ",?" : "?");
+                byID.put(itemInfo.itemID, itemInfo);
+                params.add(itemInfo.itemID);
+            }
+            sql.append(")");
+            TableRowIterator tri = DatabaseManager.query(context, sql.toString(), params.toArray());
+            try {
+                while (tri.hasNext()) {
+                    TableRow row = tri.next();
+                    HarvestedItemInfo itemInfo = byID.get(row.getIntColumn("item_id"));
+                    if (itemInfo != null && isCurrent(row, itemInfo)) {
+                        records.put(itemInfo.itemID, row.getStringColumn("record"));
+                    }
+                }
+            } finally {
+                tri.close();
+            }
+        }
+        hits.inc(records.size());
+        misses.inc(itemInfos.size() - records.size());
+        return records;
+    }
+
+    /**
+     * Caches rendered records of harvested items, replacing any cached
+     * before. Records are written in a context of their own, so may be
+     * cached while harvesting in a read-only context. Failures are logged,
+     * as records may still be rendered when not cached.
+     *
+     * @param prefix the metadata prefix
+     * @param itemInfos the harvested items, with their collections
+     * @param records the records rendered, keyed by item ID
+     */
+    public static void putRecords(String prefix, List<HarvestedItemInfo> itemInfos, Map<Integer, String> records) {
+        Context context = null;
+        try {
+            context = new Context();
+            List<Object> ids = new ArrayList<Object>();
+            PreparedBatch inserts = context.getHandle().prepareBatch(
+                    "INSERT INTO oairecord (item_id, metadata_prefix, last_modified, set_specs, record) VALUES (?, ?, ?, ?, ?)");
+            for (HarvestedItemInfo itemInfo : itemInfos) {
+                String record = records.get(itemInfo.itemID);
+                if (record != null) {
+                    ids.add(itemInfo.itemID);
+                    inserts.add(itemInfo.itemID, prefix, timestamp(itemInfo.datestamp), setSpecs(itemInfo), record);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            // others may have rendered the same records meanwhile
+            for (int start = 0; start < ids.size(); start += CHUNK) {
+                List<Object> chunk = ids.subList(start, Math.min(start + CHUNK, ids.size()));
+                StringBuilder sql = new StringBuilder("DELETE FROM oairecord WHERE metadata_prefix = ? AND item_id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append((i > 0) ? ",?" : "?");
+                }
+                sql.append(")");
+                List<Object> params = new ArrayList<Object>(chunk.size() + 1);
+                params.add(prefix);
+                params.addAll(chunk);
+                DatabaseManager.updateQuery(context, sql.toString(), params.toArray());
+            }
+            inserts.execute();
+            context.complete();
+        } catch (Exception e) {
+            log.warn("Unable to cache " + prefix + " records", e);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached records of an item, for all metadata prefixes.
+     *
+     * @param context the DSpace context
+     * @param itemID the item ID
+     * @throws SQLException if a database error occurs
+     */
+    public static void invalidate(Context context, int itemID) throws SQLException {
+        DatabaseManager.updateQuery(context, "DELETE FROM oairecord WHERE item_id = ? ", itemID);
+    }
+
+    /**
+     * Event listener: removes the records of items changed by a committed
+     * transaction.
+     *
+     * @param event the content event
+     */
+    @Subscribe
+    public void invalidateContent(ContentEvent event) {
+        if (!enabled) {
+            return;
+        }
+        DSpaceObject dso = event.getObject();
+        switch (event.getEventType()) {
+            case MODIFY:
+            case DELETE:
+            case WITHDRAW:
+            case REINSTATE:
+                if (dso.getType() == Constants.ITEM) {
+                    invalidate(dso.getID());
+                }
+                break;
+            case ADD:
+            case REMOVE:
+                // mapping to or from a collection changes the item's sets
+                if (event instanceof ContainerEvent && dso.getType() == Constants.COLLECTION) {
+                    DSpaceObject member = ((ContainerEvent)event).getMember();
+                    if (member != null && member.getType() == Constants.ITEM) {
+                        invalidate(member.getID());
+                    }
+                }
+                break;
+            default: break;
+        }
+    }
+
+    // removes an item's records in a context of its own, as the event's has committed
+    private static void invalidate(int itemID) {
+        Context context = null;
+        try {
+            context = new Context();
+            invalidate(context, itemID);
+            context.complete();
+        } catch (SQLException sqlE) {
+            log.warn("Unable to remove cached records of item " + itemID, sqlE);
+        } finally {
+            if (context != null && context.isValid()) {
+                context.abort();
+            }
+        }
+    }
+
+    private static boolean isCurrent(TableRow row, HarvestedItemInfo itemInfo) {
+        Date lastModified = row.getDateColumn("last_modified");
+        return lastModified != null && itemInfo.datestamp != null &&
+               lastModified.getTime() == itemInfo.datestamp.getTime() &&
+               setSpecs(itemInfo).equals(row.getStringColumn("set_specs"));
+    }
+
+    // the item's collections, in a canonical order
+    private static String setSpecs(HarvestedItemInfo itemInfo) {
+        if (itemInfo.collectionHandles == null) {
+            return "";
+        }
+        List<String> handles = new ArrayList<String>(itemInfo.collectionHandles);
+        Collections.sort(handles);
+        return Joiner.on(' ').join(handles);
+    }
+
+    private static Timestamp timestamp(Date date) {
+        return (date != null) ? new Timestamp(date.getTime()) : null;
+    }
+}
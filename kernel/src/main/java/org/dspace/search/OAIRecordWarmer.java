@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.io.ByteStreams;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * OAIRecordWarmer fills the OAI-PMH record cache ahead of harvesters, by
+ * harvesting all records of a metadata prefix from the OAI webapp itself.
+ * Records are rendered by the webapp, whose crosswalks are not available
+ * to command-line tools, and cached as they are served.
+ */
+public class OAIRecordWarmer {
+
+    private static final Pattern RECORD = Pattern.compile("<record>");
+    private static final Pattern TOKEN = Pattern.compile("<resumptionToken[^>]*>([^<]+)</resumptionToken>");
+
+    // metadata prefix
+    @Option(name="-p", usage="Metadata prefix of records to cache (default oai_dc)")
+    private String prefix = "oai_dc";
+
+    // OAI-PMH endpoint
+    @Option(name="-u", usage="OAI-PMH request URL (default from dspace.oai.url)")
+    private String url = ConfigurationManager.getProperty("oai-pmh", "dspace.oai.url") + "/request";
+
+    // set to harvest
+    @Option(name="-s", usage="Set spec, to cache records of only one set")
+    private String set;
+
+    // help
+    @Option(name="-h", usage="Print helpful message")
+    private boolean help;
+
+    private OAIRecordWarmer() {}
+
+    public static void main(String[] args) throws Exception {
+        OAIRecordWarmer warmer = new OAIRecordWarmer();
+        CmdLineParser parser = new CmdLineParser(warmer);
+        try {
+            parser.parseArgument(args);
+            if (! warmer.help) {
+                long start = System.currentTimeMillis();
+                int count = warmer.harvest();
+                System.out.println("Harvested " + count + " " + warmer.prefix + " records in " +
+                                   (System.currentTimeMillis() - start) + " ms");
+            } else {
+                parser.printUsage(System.err);
+            }
+            System.exit(0);
+        } catch (CmdLineException clE) {
+            System.err.println(clE.getMessage());
+            parser.printUsage(System.err);
+        } catch (IOException ioE) {
+            System.err.println("Harvest failed: " + ioE.getMessage());
+        }
+        System.exit(1);
+    }
+
+    // harvests all records, following resumption tokens, returning the number
+    private int harvest() throws IOException {
+        String request = url + "?verb=ListRecords&metadataPrefix=" + encode(prefix) +
+                         ((set != null) ? "&set=" + encode(set) : "");
+        int count = 0;
+        while (request != null) {
+            String response = fetch(request);
+            Matcher records = RECORD.matcher(response);
+            while (records.find()) {
+                count++;
+            }
+            Matcher token = TOKEN.matcher(response);
+            request = token.find() ? url + "?verb=ListRecords&resumptionToken=" + encode(token.group(1).trim()) : null;
+        }
+        return count;
+    }
+
+    private static String fetch(String request) throws IOException {
+        InputStream in = new URL(request).openStream();
+        try {
+            return new String(ByteStreams.toByteArray(in), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+}
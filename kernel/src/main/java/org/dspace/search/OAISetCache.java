@@ -0,0 +1,176 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.Subscribe;
+
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.core.LogManager;
+import org.dspace.core.Utils;
+import org.dspace.event.Consumes;
+import org.dspace.event.ContentEvent;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * OAISetCache is a process-wide cache of the OAI-PMH set list, i.e. the
+ * rendered &lt;set&gt; elements of all collections (then all communities),
+ * each ordered by name. The list is built from the handles and names of
+ * collections and communities in one query, without loading the objects.
+ * <p>
+ * The list is discarded by collection and community creation, modification
+ * (e.g. renaming) and deletion events once the changing transaction
+ * commits (when registered as an event subscriber). Since containers may
+ * also change in other processes, the list expires after a configurable
+ * time to live.
+ * <p>
+ * Configuration (modules/oai-pmh.cfg): sets.cache.ttl - seconds before the
+ * list expires, 0 to disable caching (default 300)
+ */
+@Consumes("content")
+public class OAISetCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OAISetCache.class);
+
+    private static final long ttl =
+            TimeUnit.SECONDS.toMillis(ConfigurationManager.getIntProperty("oai-pmh", "sets.cache.ttl", 300));
+
+    // the cached list, or null
+    private static volatile Sets cached;
+
+    // incremented on every invalidation, so lists built before an invalidation are not cached after it
+    private static final AtomicLong generation = new AtomicLong();
+
+    // metrics for cache effectiveness
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(OAISetCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(OAISetCache.class, "misses"));
+
+    public OAISetCache() {}
+
+    /**
+     * Returns the rendered set list, from the cache if current.
+     *
+     * @param context the DSpace context, which may be read-only
+     * @return the &lt;set&gt; elements, unmodifiable
+     * @throws SQLException if a database error occurs
+     */
+    public static List<String> getSets(Context context) throws SQLException {
+        Sets sets = cached;
+        if (sets != null && System.currentTimeMillis() < sets.expires) {
+            hits.inc();
+            return sets.list;
+        }
+        misses.inc();
+        long gen = generation.get();
+        List<String> list = Collections.unmodifiableList(buildSets(context));
+        if (ttl > 0) {
+            synchronized (OAISetCache.class) {
+                if (gen == generation.get()) {
+                    cached = new Sets(list, System.currentTimeMillis() + ttl);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Discards the cached set list.
+     */
+    public static void invalidate() {
+        synchronized (OAISetCache.class) {
+            generation.incrementAndGet();
+            cached = null;
+        }
+    }
+
+    /**
+     * Event listener: discards the set list when a collection or community
+     * is created, changed or deleted.
+     *
+     * @param event the content event
+     */
+    @Subscribe
+    public void invalidateContent(ContentEvent event) {
+        DSpaceObject dso = event.getObject();
+        if (dso.getType() != Constants.COLLECTION && dso.getType() != Constants.COMMUNITY) {
+            return;
+        }
+        switch (event.getEventType()) {
+            case CREATE:
+            case MODIFY:
+            case DELETE:
+                invalidate();
+                break;
+            default: break;
+        }
+    }
+
+    private static List<String> buildSets(Context context) throws SQLException {
+        List<String> sets = new ArrayList<String>();
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT 0 AS container, handle.handle, collection.name FROM collection, handle " +
+                "WHERE handle.resource_type_id = ? AND handle.resource_id = collection.collection_id " +
+                "UNION ALL " +
+                "SELECT 1 AS container, handle.handle, community.name FROM community, handle " +
+                "WHERE handle.resource_type_id = ? AND handle.resource_id = community.community_id " +
+                "ORDER BY container, name",
+                Constants.COLLECTION, Constants.COMMUNITY);
+        try {
+            while (tri.hasNext()) {
+                TableRow row = tri.next();
+                String handle = row.getStringColumn("handle");
+                String name = row.getStringColumn("name");
+                StringBuilder spec = new StringBuilder("<set><setSpec>hdl_");
+                spec.append(handle.replace('/', '_'));
+                spec.append("</setSpec>");
+                if (name != null) {
+                    spec.append("<setName>");
+                    spec.append(Utils.addEntities(name));
+                    spec.append("</setName>");
+                } else {
+                    spec.append("<setName />");
+                    // Warn that there is an error of a null set name
+                    log.info(LogManager.getHeader(null, "oai_error",
+                                                  "null_set_name_for_set_id_" + handle));
+                }
+                spec.append("</set>");
+                sets.add(spec.toString());
+            }
+        } finally {
+            tri.close();
+        }
+        return sets;
+    }
+
+    // a set list and its expiry time
+    private static final class Sets {
+        final List<String> list;
+        final long expires;
+
+        Sets(List<String> list, long expires) {
+            this.list = list;
+            this.expires = expires;
+        }
+    }
+}
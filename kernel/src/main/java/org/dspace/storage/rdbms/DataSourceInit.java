@@ -24,11 +24,43 @@ public class DataSourceInit {
 
     private static DataSource dataSource = null;
 
+    private static DataSource readDataSource = null;
+
     public static DataSource getDatasource() throws SQLException {
         if (dataSource != null) {
             return dataSource;
         }
+        dataSource = createDatasource("db.", false);
+        log.debug("BoneCP dataSource initialized");
+        return dataSource;
+    }
+
+    /**
+     * Returns the pool of read-only, auto-committing connections used by
+     * read-only contexts. Each 'db.read.' property defaults to the
+     * corresponding 'db.' property, so the pool may connect to a replica,
+     * or to the same database as the main pool.
+     */
+    public static DataSource getReadDatasource() throws SQLException {
+        if (readDataSource != null) {
+            return readDataSource;
+        }
+        readDataSource = createDatasource("db.read.", true);
+        log.debug("BoneCP read dataSource initialized");
+        return readDataSource;
+    }
 
+    private static String property(String prefix, String name) {
+        String value = ConfigurationManager.getProperty(prefix + name);
+        return (value != null) ? value : ConfigurationManager.getProperty("db." + name);
+    }
+
+    private static int intProperty(String prefix, String name, int defaultValue) {
+        return ConfigurationManager.getIntProperty(prefix + name,
+               ConfigurationManager.getIntProperty("db." + name, defaultValue));
+    }
+
+    private static DataSource createDatasource(String prefix, boolean readOnly) throws SQLException {
         try {
             // Register basic JDBC driver
             Class driverClass = Class.forName(ConfigurationManager.getProperty("db.driver"));
@@ -36,28 +68,30 @@ public class DataSourceInit {
             
             BoneCPDataSource bcpDS = new BoneCPDataSource();
             // access configuration
-            bcpDS.setJdbcUrl(ConfigurationManager.getProperty("db.url"));
-            bcpDS.setUsername(ConfigurationManager.getProperty("db.username"));
-            bcpDS.setPassword(ConfigurationManager.getProperty("db.password"));
+            bcpDS.setJdbcUrl(property(prefix, "url"));
+            bcpDS.setUsername(property(prefix, "username"));
+            bcpDS.setPassword(property(prefix, "password"));
             // pool configuration
-            bcpDS.setMaxConnectionsPerPartition(ConfigurationManager.getIntProperty("db.maxconnections", 30));
-            int min = ConfigurationManager.getIntProperty("db.maxidle", -1);
+            bcpDS.setMaxConnectionsPerPartition(intProperty(prefix, "maxconnections", 30));
+            int min = intProperty(prefix, "maxidle", -1);
             if (min > 0) {
                 bcpDS.setMinConnectionsPerPartition(min);
             }
-            bcpDS.setConnectionTimeoutInMs(ConfigurationManager.getIntProperty("db.maxwait", 5000));
+            bcpDS.setConnectionTimeoutInMs(intProperty(prefix, "maxwait", 5000));
             bcpDS.setPartitionCount(1);
 
             if (! ConfigurationManager.getBooleanProperty("db.statementpool",true))
             {
                 bcpDS.setStatementsCacheSize(0);
             }
+            if (readOnly) {
+                bcpDS.setDefaultAutoCommit(true);
+                bcpDS.setDefaultReadOnly(true);
+            }
             
             String validationQuery = "SELECT 1";
             bcpDS.setConnectionTestStatement(validationQuery);
-            log.debug("BoneCP dataSource initialized");
-            dataSource = bcpDS;
-            return dataSource;
+            return bcpDS;
         } catch (Exception e) {
             // Need to be able to catch other exceptions. Pretend they are
             // SQLExceptions, but do log
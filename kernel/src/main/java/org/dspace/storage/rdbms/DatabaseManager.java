@@ -25,13 +25,16 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import javax.naming.InitialContext;
@@ -41,6 +44,7 @@ import com.google.common.base.Joiner;
 
 import org.skife.jdbi.v2.DBI;
 import org.skife.jdbi.v2.Handle;
+import org.skife.jdbi.v2.util.IntegerMapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,7 +72,10 @@ public class DatabaseManager
     /** True if initialization has been done */
     private static boolean initialized = false;
 
-    private static Map<String, String> insertSQL = new HashMap<String, String>();
+    private static Map<String, String> insertSQL = new ConcurrentHashMap<String, String>();
+
+    /** Insert statements binding the primary key, by table */
+    private static Map<String, String> genericInsertSQL = new ConcurrentHashMap<String, String>();
 
     /** DataSource (retrieved from jndi */
     private static DataSource dataSource = null;
@@ -78,6 +85,9 @@ public class DatabaseManager
     private static String poolName = "dspacepool";
 
     private static DBI database = null;
+
+    /** Database of read-only connections, or null if read-only contexts share the main pool */
+    private static DBI readDatabase = null;
     
     /** 
      * This regular expression is used to perform sanity checks 
@@ -97,6 +107,30 @@ public class DatabaseManager
      */
     private static Map<String, Map<String, ColumnInfo>> info = new HashMap<String, Map<String, ColumnInfo>>();
 
+    /**
+     * Generated UPDATE statements, keyed by table name, then by the
+     * positions of the changed columns in the table's layout.
+     */
+    private static final Map<String, Map<BitSet, GeneratedSQL>> updateSQL = new ConcurrentHashMap<String, Map<BitSet, GeneratedSQL>>();
+
+    /** Maximum number of generated UPDATE statements kept per table */
+    private static final int MAX_UPDATE_SQL = 64;
+
+    /** Maximum number of rows sent in one JDBC batch */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Generated SELECT and DELETE statements by unique column,
+     * keyed by table name, then column name.
+     */
+    private static final Map<String, Map<String, String>> selectSQL = new ConcurrentHashMap<String, Map<String, String>>();
+    private static final Map<String, Map<String, String>> deleteSQL = new ConcurrentHashMap<String, Map<String, String>>();
+
+    /**
+     * Column layouts shared by all rows of a table, keyed by table name.
+     */
+    private static final Map<String, RowLayout> layouts = new ConcurrentHashMap<String, RowLayout>();
+
     // metrics counter for open connections
     private static final Counter openConns = ConfigurationManager.metrics.counter(MetricRegistry.name(DatabaseManager.class, "open-connections"));
 
@@ -168,29 +202,20 @@ public class DatabaseManager
             log.debug(sb.toString());
         }
         
-        PreparedStatement statement = context.getHandle().getConnection().prepareStatement(query);
+        StatementCache cache = context.getStatementCache();
+        PreparedStatement statement = cache.prepare(context.getHandle().getConnection(), query);
         try
         {
             loadParameters(statement, parameters);
 
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery(), canonicalize(table));
 
-            retTRI.setStatement(statement);
+            retTRI.setStatement(statement, cache);
             return retTRI;
         }
         catch (SQLException sqle)
         {
-            if (statement != null)
-            {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException s)
-                {
-                }
-            }
-
+            cache.release(statement);
             throw sqle;
         }
     }
@@ -227,29 +252,20 @@ public class DatabaseManager
             log.debug("Running query \"" + query + "\"  with parameters: " + sb.toString());
         }
 
-        PreparedStatement statement = context.getHandle().getConnection().prepareStatement(query);
+        StatementCache cache = context.getStatementCache();
+        PreparedStatement statement = cache.prepare(context.getHandle().getConnection(), query);
         try
         {
             loadParameters(statement,parameters);
 
             TableRowIterator retTRI = new TableRowIterator(statement.executeQuery());
 
-            retTRI.setStatement(statement);
+            retTRI.setStatement(statement, cache);
             return retTRI;
         }
         catch (SQLException sqle)
         {
-            if (statement != null)
-            {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException s)
-                {
-                }
-            }
-
+            cache.release(statement);
             throw sqle;
         }
     }
@@ -386,7 +402,7 @@ public class DatabaseManager
     public static TableRow create(Context context, String table)
             throws SQLException
     {
-        TableRow row = new TableRow(canonicalize(table), getColumnNames(table));
+        TableRow row = row(table);
         insert(context, row);
 
         return row;
@@ -449,8 +465,8 @@ public class DatabaseManager
             throw new SQLException("Unable to execute select query because column name (" + column + ") contains non alphanumeric characters.");
         }
 
-        StringBuilder sql = new StringBuilder("select * from ").append(ctable).append(" where ").append(column).append(" = ? ");
-        return querySingleTable(context, ctable, sql.toString(), value);
+        String sql = generatedSQL(selectSQL, "select * from ", ctable, column);
+        return querySingleTable(context, ctable, sql, value);
     }
 
     /**
@@ -504,9 +520,26 @@ public class DatabaseManager
             throw new SQLException("Unable to execute delete query because column name (" + column + ") contains non alphanumeric characters.");
         }
 
-        StringBuilder sql = new StringBuilder("delete from ").append(ctable).append(" where ").append(column).append(" = ? ");
-        
-        return updateQuery(context, sql.toString(), value);
+        String sql = generatedSQL(deleteSQL, "delete from ", ctable, column);
+        return updateQuery(context, sql, value);
+    }
+
+    // returns the statement selecting rows by a column's value, generating it only once
+    private static String generatedSQL(Map<String, Map<String, String>> cache, String verb, String table, String column)
+    {
+        Map<String, String> tableSQL = cache.get(table);
+        if (tableSQL == null)
+        {
+            tableSQL = new ConcurrentHashMap<String, String>();
+            cache.put(table, tableSQL);
+        }
+        String sql = tableSQL.get(column);
+        if (sql == null)
+        {
+            sql = new StringBuilder(verb).append(table).append(" where ").append(column).append(" = ? ").toString();
+            tableSQL.put(column, sql);
+        }
+        return sql;
     }
 
     /**
@@ -520,6 +553,25 @@ public class DatabaseManager
         return database.open();
     }
 
+    /**
+     * Obtains a database handle for reading only. If a read pool is configured
+     * (db.read.enabled), the handle wraps an auto-committing, read-only
+     * connection from that pool, which may connect to a replica; otherwise
+     * it wraps an auto-committing connection from the main pool.
+     *
+     * @return A new database handle.
+     */
+    public static Handle getReadHandle() throws SQLException {
+        initialize();
+        openConns.inc();
+        if (readDatabase != null) {
+            return readDatabase.open();
+        }
+        Handle handle = database.open();
+        handle.getConnection().setAutoCommit(true);
+        return handle;
+    }
+
     /**
      * Closes a database handle (wrapped JDBC Connection)
      *
@@ -612,7 +664,8 @@ public class DatabaseManager
      */
     public static TableRow row(String table) throws SQLException
     {
-        return new TableRow(canonicalize(table), getColumnNames(table));
+        String ctable = canonicalize(table);
+        return new TableRow(ctable, getLayout(ctable));
     }
 
     /**
@@ -627,7 +680,8 @@ public class DatabaseManager
      */
     public static void insert(Context context, TableRow row) throws SQLException
     {
-        int newID = doInsertPostgres(context, row);
+        // with IDs allocated in blocks, bind the ID rather than obtain it in the insert
+        int newID = IdAllocator.isEnabled() ? doInsertGeneric(context, row) : doInsertPostgres(context, row);
         row.setColumn(getPrimaryKeyColumn(row), newID);
     }
 
@@ -646,7 +700,41 @@ public class DatabaseManager
     public static int update(Context context, TableRow row) throws SQLException
     {
         String table = row.getTable();
+        GeneratedSQL update = null;
+        Map<BitSet, GeneratedSQL> tableSQL = null;
+
+        // rows of the table's shared layout reuse SQL generated for the same changes
+        if (row.getLayout() == getLayout(table))
+        {
+            tableSQL = updateSQL.get(table);
+            if (tableSQL == null)
+            {
+                tableSQL = new ConcurrentHashMap<BitSet, GeneratedSQL>();
+                updateSQL.put(table, tableSQL);
+            }
+            update = tableSQL.get(row.getChangedColumns());
+        }
+
+        if (update == null)
+        {
+            update = generateUpdate(table, row);
+            if (tableSQL != null && tableSQL.size() < MAX_UPDATE_SQL)
+            {
+                tableSQL.put((BitSet)row.getChangedColumns().clone(), update);
+            }
+        }
+
+        // Only execute the update if there is anything to update
+        if (update.sql != null)
+        {
+            return executeUpdate(context, update.sql, update.columns, row);
+        }
 
+        return 1;
+    }
+
+    private static GeneratedSQL generateUpdate(String table, TableRow row) throws SQLException
+    {
         StringBuilder sql = new StringBuilder().append("update ").append(table)
                 .append(" set ");
 
@@ -669,16 +757,13 @@ public class DatabaseManager
             }
         }
 
-        // Only execute the update if there is anything to update
         if (columns.size() > 0)
         {
             sql.append(" where ").append(pk.getName()).append(" = ?");
             columns.add(pk);
-
-            return executeUpdate(context.getHandle().getConnection(), sql.toString(), columns, row);
+            return new GeneratedSQL(sql.toString(), columns);
         }
-
-        return 1;
+        return new GeneratedSQL(null, columns);
     }
 
     /**
@@ -709,6 +794,121 @@ public class DatabaseManager
         return delete(context, row.getTable(), row.getIntColumn(pk));
     }
 
+    /**
+     * Reserve IDs for new rows of a table from its sequence, in one query.
+     * The IDs are then bound explicitly, e.g. by statements inserting many
+     * rows at once; they are drawn from the same sequence as the IDs
+     * <code>insert</code> assigns.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param table
+     *            The name of the table
+     * @param count
+     *            The number of IDs to reserve
+     * @return The IDs, in sequence order
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static List<Integer> reserveIds(Context context, String table, int count) throws SQLException
+    {
+        List<Integer> reserved = context.getHandle()
+                .createQuery("SELECT getnextid(?) FROM generate_series(1, ?)")
+                .bind(0, table).bind(1, count)
+                .map(IntegerMapper.FIRST).list();
+        if (reserved.size() < count)
+        {
+            throw new SQLException("Unable to retrieve sequence IDs for " + table);
+        }
+        return reserved;
+    }
+
+    /**
+     * Insert many table rows into the RDBMS, in JDBC batches. The IDs of the
+     * rows of each table are reserved from its sequence in one query, and set
+     * in the rows before they are inserted, as <code>insert</code> would.
+     * Rows may belong to different tables; each table's rows are inserted in
+     * the order passed.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to insert
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static void insertBatch(Context context, List<TableRow> rows) throws SQLException
+    {
+        for (Map.Entry<String, List<TableRow>> entry : byTable(rows).entrySet())
+        {
+            String table = entry.getKey();
+            List<TableRow> tableRows = entry.getValue();
+            String pk = getPrimaryKeyColumn(table);
+            List<Integer> ids = reserveIds(context, table, tableRows.size());
+            for (int i = 0; i < tableRows.size(); i++)
+            {
+                tableRows.get(i).setColumn(pk, ids.get(i).intValue());
+            }
+
+            Collection<ColumnInfo> info = getColumnInfo(table);
+            executeBatch(context, genericInsertSQL(table, info), info, tableRows);
+        }
+    }
+
+    /**
+     * Delete many table rows from the RDBMS, by primary key, in JDBC batches.
+     * Rows may belong to different tables.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param rows
+     *            The rows to delete
+     * @return The number of rows affected
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static int deleteBatch(Context context, List<TableRow> rows) throws SQLException
+    {
+        int deleted = 0;
+        for (Map.Entry<String, List<TableRow>> entry : byTable(rows).entrySet())
+        {
+            String table = entry.getKey();
+            ColumnInfo pk = getPrimaryKeyColumnInfo(table);
+            for (TableRow row : entry.getValue())
+            {
+                if (row.isColumnNull(pk.getCanonicalizedName()))
+                {
+                    throw new IllegalArgumentException("Primary key value is null");
+                }
+            }
+
+            String sql = generatedSQL(deleteSQL, "delete from ", table, pk.getName());
+            deleted += executeBatch(context, sql, Collections.singletonList(pk), entry.getValue());
+        }
+        return deleted;
+    }
+
+    // groups rows by table, keeping the order of each table's rows
+    private static Map<String, List<TableRow>> byTable(List<TableRow> rows)
+    {
+        Map<String, List<TableRow>> byTable = new LinkedHashMap<String, List<TableRow>>();
+        for (TableRow row : rows)
+        {
+            if (null == row.getTable())
+            {
+                throw new IllegalArgumentException("Row not associated with a table");
+            }
+            List<TableRow> tableRows = byTable.get(row.getTable());
+            if (tableRows == null)
+            {
+                tableRows = new ArrayList<TableRow>();
+                byTable.put(row.getTable(), tableRows);
+            }
+            tableRows.add(row);
+        }
+        return byTable;
+    }
+
     /**
      * Return metadata about a table.
      * 
@@ -790,6 +990,27 @@ public class DatabaseManager
         return results;
     }
 
+    /**
+     * Return the column layout shared by all rows of the given table.
+     *
+     * @param table
+     *            The name of the table
+     * @return The layout of the table's columns
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static RowLayout getLayout(String table) throws SQLException
+    {
+        String ctable = canonicalize(table);
+        RowLayout layout = layouts.get(ctable);
+        if (layout == null)
+        {
+            layout = new RowLayout(getColumnNames(ctable));
+            layouts.put(ctable, layout);
+        }
+        return layout;
+    }
+
     /**
      * Return the canonical name for a table.
      * 
@@ -1013,15 +1234,32 @@ public class DatabaseManager
      *                If a database error occurs
      */
     static TableRow process(ResultSet results, String table, List<String> pColumnNames) throws SQLException
+    {
+        // If we haven't been passed the column names try to generate them from the metadata / table
+        RowLayout layout = pColumnNames != null ? new RowLayout(pColumnNames) :
+                           ((table == null) ? new RowLayout(getColumnNames(results.getMetaData())) : getLayout(table));
+        return process(results, table, layout);
+    }
+
+    /**
+     * Convert the current row in a ResultSet into a TableRow object.
+     *
+     * @param results
+     *            A ResultSet to process
+     * @param table
+     *            The name of the table
+     * @param layout
+     *            The column layout of the row
+     * @return A TableRow object with the data from the ResultSet
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static TableRow process(ResultSet results, String table, RowLayout layout) throws SQLException
     {
         ResultSetMetaData meta = results.getMetaData();
         int columns = meta.getColumnCount() + 1;
 
-        // If we haven't been passed the column names try to generate them from the metadata / table
-        List<String> columnNames = pColumnNames != null ? pColumnNames :
-                                        ((table == null) ? getColumnNames(meta) : getColumnNames(table));
-
-        TableRow row = new TableRow(canonicalize(table), columnNames);
+        TableRow row = new TableRow(canonicalize(table), layout);
 
         // Process the columns in order
         // (This ensures maximum backwards compatibility with
@@ -1029,70 +1267,65 @@ public class DatabaseManager
         for (int i = 1; i < columns; i++)
         {
             String name = meta.getColumnName(i);
+            int position = layout.indexOf(name);
+            if (position < 0)
+            {
+                throw new IllegalArgumentException("No such column " + ColumnInfo.canonicalize(name));
+            }
             int jdbctype = meta.getColumnType(i);
+            Object value;
 
             switch (jdbctype)
             {
                 case Types.BIT:
-                    row.setColumn(name, results.getBoolean(i));
+                    value = Boolean.valueOf(results.getBoolean(i));
                     break;
 
                 case Types.INTEGER:
                 case Types.NUMERIC:
-                    row.setColumn(name, results.getInt(i));
+                    value = Integer.valueOf(results.getInt(i));
                     break;
 
                 case Types.DECIMAL:
                 case Types.BIGINT:
-                    row.setColumn(name, results.getLong(i));
+                    value = Long.valueOf(results.getLong(i));
                     break;
 
                 case Types.DOUBLE:
-                    row.setColumn(name, results.getDouble(i));
+                    value = Double.valueOf(results.getDouble(i));
                     break;
 
                 case Types.VARCHAR:
                     try
                     {
                         byte[] bytes = results.getBytes(i);
-
-                        if (bytes != null)
-                        {
-                            String mystring = new String(results.getBytes(i), "UTF-8");
-                            row.setColumn(name, mystring);
-                        }
-                        else
-                        {
-                            row.setColumn(name, results.getString(i));
-                        }
+                        value = (bytes != null) ? new String(bytes, "UTF-8") : null;
                     }
                     catch (UnsupportedEncodingException e)
                     {
                         log.error("Unable to parse text from database", e);
+                        value = null;
                     }
                     break;
 
                 case Types.DATE:
-                    row.setColumn(name, results.getDate(i));
+                    value = results.getDate(i);
                     break;
 
                 case Types.TIME:
-                    row.setColumn(name, results.getTime(i));
+                    value = results.getTime(i);
                     break;
 
                 case Types.TIMESTAMP:
-                    row.setColumn(name, results.getTimestamp(i));
+                    value = results.getTimestamp(i);
                     break;
 
                 default:
                     throw new IllegalArgumentException("Unsupported JDBC type: " + jdbctype);
             }
 
-            // Determines if the last column was null, and sets the tablerow accordingly
-            if (results.wasNull())
-            {
-                row.setColumnNull(name);
-            }
+            // Determines if the column was null, and sets the tablerow accordingly
+            row.load(position, results.wasNull() ? null : value);
         }
 
         // Now that we've prepped the TableRow, reset the flags so that we can detect which columns have changed
@@ -1179,8 +1412,9 @@ public class DatabaseManager
      * @exception SQLException
      *                If a database error occurs
      */
-    private static void execute(Connection connection, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
+    private static void execute(Context context, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
     {
+        StatementCache cache = context.getStatementCache();
         PreparedStatement statement = null;
 
         if (log.isDebugEnabled())
@@ -1190,7 +1424,7 @@ public class DatabaseManager
 
         try
         {
-            statement = connection.prepareStatement(sql);
+            statement = cache.prepare(context.getHandle().getConnection(), sql);
         	loadParameters(statement, columns, row);
             statement.execute();
         }
@@ -1198,19 +1432,14 @@ public class DatabaseManager
         {
             if (statement != null)
             {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException sqle)
-                {
-                }
+                cache.release(statement);
             }
         }
     }
 
-    private static int executeUpdate(Connection connection, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
+    private static int executeUpdate(Context context, String sql, Collection<ColumnInfo> columns, TableRow row) throws SQLException
     {
+        StatementCache cache = context.getStatementCache();
         PreparedStatement statement = null;
 
         if (log.isDebugEnabled())
@@ -1220,21 +1449,61 @@ public class DatabaseManager
 
         try
         {
-            statement = connection.prepareStatement(sql);
+            statement = cache.prepare(context.getHandle().getConnection(), sql);
         	loadParameters(statement, columns, row);
             return statement.executeUpdate();
         }
         finally
+        {
+            if (statement != null)
+            {
+                cache.release(statement);
+            }
+        }
+    }
+
+    // executes the statement once per row, sending at most BATCH_SIZE rows at a time
+    private static int executeBatch(Context context, String sql, Collection<ColumnInfo> columns, List<TableRow> rows) throws SQLException
+    {
+        StatementCache cache = context.getStatementCache();
+        PreparedStatement statement = null;
+        int count = 0;
+
+        if (log.isDebugEnabled())
+        {
+            log.debug("Running batch \"" + sql + "\" for " + rows.size() + " rows");
+        }
+
+        try
+        {
+            statement = cache.prepare(context.getHandle().getConnection(), sql);
+            for (int i = 0; i < rows.size(); i++)
+            {
+                loadParameters(statement, columns, rows.get(i));
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0 || i == rows.size() - 1)
+                {
+                    for (int updated : statement.executeBatch())
+                    {
+                        // drivers may not report counts of batched statements
+                        count += (updated > 0) ? updated : 0;
+                    }
+                }
+            }
+            return count;
+        }
+        finally
         {
             if (statement != null)
             {
                 try
                 {
-                    statement.close();
+                    statement.clearBatch();
                 }
                 catch (SQLException sqle)
                 {
                 }
+                cache.release(statement);
             }
         }
     }
@@ -1360,6 +1629,7 @@ public class DatabaseManager
         if (initialized)
         {
             dataSource = null;
+            readDatabase = null;
             initialized = false;
         }
     }
@@ -1406,6 +1676,9 @@ public class DatabaseManager
                 dataSource = DataSourceInit.getDatasource();
             }
             database = new DBI(dataSource);
+            if (ConfigurationManager.getBooleanProperty("db.read.enabled", false)) {
+                readDatabase = new DBI(DataSourceInit.getReadDatasource());
+            }
             initialized = true;
         }
         catch (SQLException se)
@@ -1621,10 +1894,11 @@ public class DatabaseManager
             log.debug("Running query \"" + sql + "\"");
         }
 
+        StatementCache cache = context.getStatementCache();
         ResultSet rs = null;
         try
         {
-            statement = context.getHandle().getConnection().prepareStatement(sql);
+            statement = cache.prepare(context.getHandle().getConnection(), sql);
         	loadParameters(statement, params, row);
             rs = statement.executeQuery();
             rs.next();
@@ -1645,19 +1919,14 @@ public class DatabaseManager
 
             if (statement != null)
             {
-                try
-                {
-                    statement.close();
-                }
-                catch (SQLException sqle)
-                {
-                }
+                cache.release(statement);
             }
         }
     }
 
     /**
-     * Generic version of row insertion with separate id get / insert
+     * Generic version of row insertion, with an ID from the table's block of
+     * reserved IDs
      * @param context
      * @param row
      * @return
@@ -1665,44 +1934,22 @@ public class DatabaseManager
      */
     private static int doInsertGeneric(Context context, TableRow row) throws SQLException
     {
-        int newID = -1;
         String table = row.getTable();
-        PreparedStatement statement = null;
-        ResultSet rs = null;
-
-        try
-        {
-            // Get an ID (primary key) for this row by using the "getnextid"
-            // SQL function in Postgres
-            statement = context.getHandle().getConnection().prepareStatement("SELECT getnextid(?) AS result");
-            loadParameters(statement, new Object[] { table });
-            rs = statement.executeQuery();
-            rs.next();
-            newID = rs.getInt(1);
-        }
-        finally
-        {
-            if (rs != null)
-            {
-                try { rs.close(); } catch (SQLException sqle) { }
-            }
-
-            if (statement != null)
-            {
-                try { statement.close(); } catch (SQLException sqle) { }
-            }
-        }
-
-        if (newID < 0)
-        {
-            throw new SQLException("Unable to retrieve sequence ID");
-        }
+        int newID = IdAllocator.nextId(context, table);
 
         // Set the ID in the table row object
         row.setColumn(getPrimaryKeyColumn(table), newID);
         Collection<ColumnInfo> info = getColumnInfo(table);
 
-        String sql = insertSQL.get(table);
+        String sql = genericInsertSQL(table, info);
+        execute(context, sql, info, row);
+        return newID;
+    }
+
+    // returns the statement inserting all columns of the table, primary key included
+    private static String genericInsertSQL(String table, Collection<ColumnInfo> info)
+    {
+        String sql = genericInsertSQL.get(table);
         if (sql == null)
         {
             StringBuilder sqlBuilder = new StringBuilder().append("INSERT INTO ").append(table).append(" ( ");
@@ -1741,11 +1988,10 @@ public class DatabaseManager
             // Watch the syntax
             sqlBuilder.append(")");
             sql = sqlBuilder.toString();
-            insertSQL.put(table, sql);
+            genericInsertSQL.put(table, sql);
         }
 
-        execute(context.getHandle().getConnection(), sql, info, row);
-        return newID;
+        return sql;
     }
 
     /**
@@ -1781,4 +2027,17 @@ public class DatabaseManager
 
         System.out.println("Connected successfully!\n");
     }
+
+    // a generated statement, with the columns bound to its parameters
+    private static final class GeneratedSQL
+    {
+        private final String sql;
+        private final List<ColumnInfo> columns;
+
+        GeneratedSQL(String sql, List<ColumnInfo> columns)
+        {
+            this.sql = sql;
+            this.columns = columns;
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Context;
+
+/**
+ * IdAllocator hands out primary key values for new rows from blocks of IDs
+ * reserved from each table's sequence, so that only one in every block size
+ * inserts needs to consult the sequence. IDs of a block need not be
+ * contiguous, as other processes may draw from the sequence concurrently.
+ * IDs reserved but never used (e.g. at shutdown) are skipped.
+ * <p>
+ * Configuration (kernel.cfg): db.idblock.size - number of IDs reserved at a
+ * time; 1 disables block allocation, IDs then being obtained by each insert
+ * statement itself (default 1)
+ */
+final class IdAllocator
+{
+    private static volatile int blockSize = ConfigurationManager.getIntProperty("db.idblock.size", 1);
+
+    /** blocks of reserved IDs, keyed by table name */
+    private static final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<String, Block>();
+
+    private IdAllocator() {}
+
+    /**
+     * Returns true if IDs are allocated in blocks.
+     */
+    static boolean isEnabled()
+    {
+        return blockSize > 1;
+    }
+
+    /**
+     * Returns the number of IDs reserved at a time.
+     */
+    static int getBlockSize()
+    {
+        return blockSize;
+    }
+
+    /**
+     * Sets the number of IDs reserved at a time, e.g. to compare inserts
+     * with and without block allocation in tests.
+     */
+    static void setBlockSize(int size)
+    {
+        blockSize = size;
+    }
+
+    /**
+     * Returns an unused ID for a new row of the table.
+     *
+     * @param context
+     *            Current DSpace context, used if a new block must be reserved
+     * @param table
+     *            The name of the table
+     * @return The ID
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    static int nextId(Context context, String table) throws SQLException
+    {
+        return nextId(context, table, blockSize);
+    }
+
+    /**
+     * Returns an unused ID for a new row of the table, reserving passed
+     * number of IDs if the table's block is used up.
+     */
+    static int nextId(Context context, String table, int size) throws SQLException
+    {
+        Block block = blocks.get(table);
+        if (block == null)
+        {
+            Block newBlock = new Block();
+            block = blocks.putIfAbsent(table, newBlock);
+            if (block == null)
+            {
+                block = newBlock;
+            }
+        }
+        return block.next(context, table, Math.max(size, 1));
+    }
+
+    // the reserved and not yet used IDs of a table
+    private static final class Block
+    {
+        private List<Integer> ids;
+        private int next;
+
+        synchronized int next(Context context, String table, int size) throws SQLException
+        {
+            if (ids == null || next >= ids.size())
+            {
+                ids = DatabaseManager.reserveIds(context, table, size);
+                next = 0;
+            }
+            return ids.get(next++).intValue();
+        }
+    }
+}
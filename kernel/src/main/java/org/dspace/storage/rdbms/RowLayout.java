@@ -0,0 +1,78 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable column layout of a TableRow: the canonicalized names of its
+ * columns, and the position of each in the row's value array. One layout
+ * is shared by all rows of a table (see DatabaseManager.getLayout), so rows
+ * need not each carry maps keyed by column name.
+ */
+final class RowLayout
+{
+    /** canonicalized column names, in position order */
+    private final String[] columns;
+
+    /** positions of columns, keyed by canonicalized name */
+    private final Map<String, Integer> positions;
+
+    RowLayout(List<String> columnNames)
+    {
+        String[] names = new String[columnNames.size()];
+        positions = new HashMap<String, Integer>(columnNames.size() * 2);
+        int size = 0;
+        for (String column : columnNames)
+        {
+            String canonicalized = ColumnInfo.canonicalize(column);
+            if (! positions.containsKey(canonicalized))
+            {
+                positions.put(canonicalized, size);
+                names[size++] = canonicalized;
+            }
+        }
+        // duplicate names (e.g. from a join) share a position
+        columns = (size < names.length) ? Arrays.copyOf(names, size) : names;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    int size()
+    {
+        return columns.length;
+    }
+
+    /**
+     * Returns the canonicalized name of the column at passed position.
+     */
+    String getColumn(int position)
+    {
+        return columns[position];
+    }
+
+    /**
+     * Returns the position of a column, or -1 if there is no such column.
+     *
+     * @param column
+     *            The column name (case-insensitive)
+     */
+    int indexOf(String column)
+    {
+        Integer position = positions.get(column);
+        if (position == null)
+        {
+            position = positions.get(ColumnInfo.canonicalize(column));
+        }
+        return (position != null) ? position.intValue() : -1;
+    }
+}
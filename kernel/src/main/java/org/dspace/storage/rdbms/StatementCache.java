@@ -0,0 +1,163 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+import org.skife.jdbi.v2.StatementContext;
+import org.skife.jdbi.v2.tweak.StatementBuilder;
+
+import org.dspace.core.ConfigurationManager;
+
+/**
+ * StatementCache keeps the prepared statements of one connection for reuse,
+ * keyed by SQL. A statement is checked out while in use, so nested uses of
+ * the same SQL (e.g. a query run while iterating over results of the same
+ * query) each get their own statement. Idle statements are bounded, the least
+ * recently used being closed when the bound is reached. Hits, misses and
+ * evictions are counted in the 'hits', 'misses' and 'evictions' metrics,
+ * and the 'hit-rate' gauge reports the proportion of hits.
+ * <p>
+ * A StatementCache is also the JDBI statement builder of its handle, so
+ * statements JDBI prepares are cached too, and all are closed with the handle.
+ * <p>
+ * Configuration (kernel.cfg): db.statementcache.size - maximum number of idle
+ * statements per connection, 0 to disable (default 50)
+ */
+public class StatementCache implements StatementBuilder {
+
+    private static final int cacheSize = ConfigurationManager.getIntProperty("db.statementcache.size", 50);
+
+    private static final Counter hits = ConfigurationManager.metrics.counter(MetricRegistry.name(StatementCache.class, "hits"));
+    private static final Counter misses = ConfigurationManager.metrics.counter(MetricRegistry.name(StatementCache.class, "misses"));
+    private static final Counter evictions = ConfigurationManager.metrics.counter(MetricRegistry.name(StatementCache.class, "evictions"));
+
+    static {
+        ConfigurationManager.metrics.register(MetricRegistry.name(StatementCache.class, "hit-rate"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    // idle statements, in access order
+    private final Map<String, PreparedStatement> idle = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() > cacheSize) {
+                closeQuietly(eldest.getValue());
+                evictions.inc();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // statements checked out, with their SQL
+    private final Map<Statement, String> inUse = new IdentityHashMap<Statement, String>();
+
+    /**
+     * Returns a prepared statement for passed SQL, from the cache if idle
+     * there. The statement must be handed back with <code>release</code>
+     * rather than closed.
+     *
+     * @param conn the connection of this cache
+     * @param sql the SQL to prepare
+     * @return the statement
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        if (cacheSize <= 0) {
+            return conn.prepareStatement(sql);
+        }
+        PreparedStatement statement = idle.remove(sql);
+        if (statement != null) {
+            hits.inc();
+        } else {
+            misses.inc();
+            statement = conn.prepareStatement(sql);
+        }
+        inUse.put(statement, sql);
+        return statement;
+    }
+
+    /**
+     * Hands back a statement obtained from <code>prepare</code>, to be
+     * cached for reuse. Statements not obtained from this cache, or whose
+     * SQL already has an idle statement, are closed.
+     *
+     * @param statement the statement
+     */
+    public void release(Statement statement) {
+        String sql = inUse.remove(statement);
+        if (sql == null || idle.containsKey(sql)) {
+            closeQuietly(statement);
+            return;
+        }
+        try {
+            ((PreparedStatement)statement).clearParameters();
+            idle.put(sql, (PreparedStatement)statement);
+        } catch (SQLException sqlE) {
+            closeQuietly(statement);
+        }
+    }
+
+    @Override
+    public PreparedStatement create(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        if (ctx.isReturningGeneratedKeys()) {
+            return conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        }
+        return prepare(conn, sql);
+    }
+
+    @Override
+    public CallableStatement createCall(Connection conn, String sql, StatementContext ctx) throws SQLException {
+        return conn.prepareCall(sql);
+    }
+
+    @Override
+    public void close(Connection conn, String sql, Statement stmt) throws SQLException {
+        release(stmt);
+    }
+
+    /**
+     * Closes all statements, when the connection is closed.
+     */
+    @Override
+    public void close(Connection conn) {
+        List<Statement> statements = new ArrayList<Statement>(idle.values());
+        statements.addAll(inUse.keySet());
+        idle.clear();
+        inUse.clear();
+        for (Statement statement : statements) {
+            closeQuietly(statement);
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException sqlE) {
+            // ignore
+        }
+    }
+}
@@ -7,10 +7,9 @@
  */
 package org.dspace.storage.rdbms;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents a database row.
@@ -26,14 +25,18 @@ public class TableRow
     /** The name of the database table containing this row */
     private String table;
 
+    /** The columns of this row, and their positions in data */
+    private final RowLayout layout;
+
     /**
-     * A map of column names to column values. The key of the map is a String,
-     * the column name; the value is an Object, either an Integer, Boolean,
-     * Date, or String. If the value is NULL_OBJECT, then the column was NULL.
+     * Column values, by position in the layout. Each is an Object, either an
+     * Integer, Boolean, Date, or String. If the value is NULL_OBJECT, then
+     * the column was NULL.
      */
-    private Map<String, Object> data = new HashMap<String, Object>();
+    private final Object[] data;
 
-    private Map<String, Boolean> changed = new HashMap<String, Boolean>();
+    /** Positions of the columns which have changed */
+    private final BitSet changed;
 
     /**
      * Constructor
@@ -48,14 +51,26 @@ public class TableRow
      */
     public TableRow(String table, List<String> columns)
     {
-        this.table = table;
+        this(table, new RowLayout(columns));
+    }
 
-        for (String column : columns)
-        {
-            String canonicalized = ColumnInfo.canonicalize(column);
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+    /**
+     * Constructor of a row with a shared column layout. All columns
+     * are NULL, and flagged as changed.
+     *
+     * @param table
+     *            The name of the database table containing this row.
+     * @param layout
+     *            The columns of the row.
+     */
+    TableRow(String table, RowLayout layout)
+    {
+        this.table = table;
+        this.layout = layout;
+        data = new Object[layout.size()];
+        Arrays.fill(data, NULL_OBJECT);
+        changed = new BitSet(layout.size());
+        changed.set(0, layout.size());
     }
 
     /**
@@ -82,14 +97,7 @@ public class TableRow
      */
     public boolean hasColumn(String column)
     {
-        try
-        {
-            return canonicalizeAndCheck(column) != null;
-        }
-        catch (IllegalArgumentException e)
-        {
-            return false;
-        }
+        return layout.indexOf(column) >= 0;
     }
 
     /**
@@ -101,12 +109,8 @@ public class TableRow
      */
     public boolean hasColumnChanged(String column)
     {
-        return hasColumnChangedCanonicalized(ColumnInfo.canonicalize(column));
-    }
-
-    boolean hasColumnChangedCanonicalized(String column)
-    {
-        return changed.get(column) == Boolean.TRUE;
+        int position = layout.indexOf(column);
+        return position >= 0 && changed.get(position);
     }
 
     /**
@@ -118,12 +122,7 @@ public class TableRow
      */
     public boolean isColumnNull(String column)
     {
-        return isColumnNullCanonicalized(canonicalizeAndCheck(column));
-    }
-
-    boolean isColumnNullCanonicalized(String column)
-    {
-        return data.get(column) == NULL_OBJECT;
+        return data[positionOf(column)] == NULL_OBJECT;
     }
 
     /**
@@ -139,19 +138,12 @@ public class TableRow
      */
     public int getIntColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
-
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
-
         if (!(value instanceof Integer))
         {
             throw new IllegalArgumentException("Value for " + column + " is not an integer");
@@ -172,19 +164,12 @@ public class TableRow
      */
     public long getLongColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
-
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
-
         // If the value is an integer, it can be represented without error as a long
         // So, allow the return of a long. (This is needed for Oracle support).
         if ((value instanceof Integer))
@@ -212,18 +197,12 @@ public class TableRow
      */
     public double getDoubleColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return -1;
         }
 
-        Object value = data.get(canonicalized);
-
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
         
         if (!(value instanceof Double))
         {
@@ -246,19 +225,12 @@ public class TableRow
      */
     public String getStringColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
-
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
-
         if (!(value instanceof String))
         {
             throw new IllegalArgumentException("Value is not an string");
@@ -280,20 +252,13 @@ public class TableRow
      */
     public boolean getBooleanColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return false;
         }
 
-        Object value = data.get(canonicalized);
-
         // make sure that we tolerate integers or booleans
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
-
         if ((value instanceof Boolean))
         {
             return ((Boolean) value).booleanValue();
@@ -328,19 +293,12 @@ public class TableRow
      */
     public java.util.Date getDateColumn(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (isColumnNullCanonicalized(canonicalized))
+        Object value = data[positionOf(column)];
+        if (value == NULL_OBJECT)
         {
             return null;
         }
 
-        Object value = data.get(canonicalized);
-
-        if (value == null)
-        {
-            throw new IllegalArgumentException("Column " + column + " not present");
-        }
-
         if (!(value instanceof java.util.Date))
         {
             throw new IllegalArgumentException("Value is not a Date");
@@ -359,12 +317,7 @@ public class TableRow
      */
     public void setColumnNull(String column)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        if (data.get(canonicalized) != NULL_OBJECT)
-        {
-            data.put(canonicalized, NULL_OBJECT);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), NULL_OBJECT);
     }
     /**
      * Set column to the boolean b.
@@ -378,13 +331,8 @@ public class TableRow
      */
     public void setColumn(String column, boolean b)
     {
-        String canonicalized = canonicalizeAndCheck(column);
         // default to postgres true/false
-        Boolean value = b ? Boolean.TRUE : Boolean.FALSE;
-        if (!value.equals(data.get(canonicalized))) {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), b ? Boolean.TRUE : Boolean.FALSE);
     }
 
     /**
@@ -399,13 +347,7 @@ public class TableRow
      */
     public void setColumn(String column, String s)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        Object value = (s == null) ? NULL_OBJECT : s;
-        if (!value.equals(data.get(canonicalized)))
-        {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), (s == null) ? NULL_OBJECT : s);
     }
 
     /**
@@ -420,13 +362,7 @@ public class TableRow
      */
     public void setColumn(String column, int i)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        Integer value = Integer.valueOf(i);
-        if (!value.equals(data.get(canonicalized)))
-        {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), Integer.valueOf(i));
     }
 
     /**
@@ -441,13 +377,7 @@ public class TableRow
      */
     public void setColumn(String column, long l)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        Long value = Long.valueOf(l);
-        if (!value.equals(data.get(canonicalized)))
-        {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), Long.valueOf(l));
     }
 
     /**
@@ -462,13 +392,7 @@ public class TableRow
      */
     public void setColumn(String column, double d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        Double value = new Double(d);
-        if (!value.equals(data.get(canonicalized)))
-        {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), new Double(d));
     }
 
     /**
@@ -484,13 +408,7 @@ public class TableRow
      */
     public void setColumn(String column, java.util.Date d)
     {
-        String canonicalized = canonicalizeAndCheck(column);
-        Object value = (d == null) ? NULL_OBJECT : d;
-        if (!value.equals(data.get(canonicalized)))
-        {
-            data.put(canonicalized, value);
-            changed.put(canonicalized, Boolean.TRUE);
-        }
+        set(positionOf(column), (d == null) ? NULL_OBJECT : d);
     }
 
     ////////////////////////////////////////
@@ -518,11 +436,10 @@ public class TableRow
     	
     	result.append(NEWLINE);
 
-        for (Iterator iterator = data.keySet().iterator(); iterator.hasNext();)
+        for (int i = 0; i < data.length; i++)
         {
-            String column = (String) iterator.next();
-            result.append("\t").append(column).append(" = ").append(
-                    isColumnNull(column) ? "NULL" : data.get(column)).append(
+            result.append("\t").append(layout.getColumn(i)).append(" = ").append(
+                    (data[i] == NULL_OBJECT) ? "NULL" : data[i]).append(
                     NEWLINE);
         }
 
@@ -552,23 +469,66 @@ public class TableRow
             return false;
         }
 
-        return data.equals(((TableRow) obj).data);
+        TableRow other = (TableRow) obj;
+        if (data.length != other.data.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < data.length; i++)
+        {
+            int position = other.layout.indexOf(layout.getColumn(i));
+            if (position < 0 || !data[i].equals(other.data[position]))
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private String canonicalizeAndCheck(String column)
+    private int positionOf(String column)
     {
-        if (data.containsKey(column))
+        int position = layout.indexOf(column);
+        if (position < 0)
         {
-            return column;
+            throw new IllegalArgumentException("No such column " + ColumnInfo.canonicalize(column));
         }
+        return position;
+    }
 
-        String canonicalized = ColumnInfo.canonicalize(column);
-        if (data.containsKey(canonicalized))
+    private void set(int position, Object value)
+    {
+        if (!value.equals(data[position]))
         {
-            return canonicalized;
+            data[position] = value;
+            changed.set(position);
         }
+    }
 
-        throw new IllegalArgumentException("No such column " + canonicalized);
+    /**
+     * package private method to set a column value read from the database,
+     * by position in the layout, without flagging a change. A null value
+     * sets the column to NULL.
+     */
+    void load(int position, Object value)
+    {
+        data[position] = (value == null) ? NULL_OBJECT : value;
+    }
+
+    /**
+     * package private method to return the layout of this row.
+     */
+    RowLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * package private method to return the positions of the changed columns.
+     * The set is live, and must not be modified.
+     */
+    BitSet getChangedColumns()
+    {
+        return changed;
     }
 
     /**
@@ -580,9 +540,6 @@ public class TableRow
      */
     void resetChanged()
     {
-        for (String column : changed.keySet())
-        {
-            changed.put(column, Boolean.FALSE);
-        }
+        changed.clear();
     }
 }
@@ -14,7 +14,6 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -36,6 +35,11 @@ public class TableRowIterator implements AutoCloseable
      */
     private Statement statemt = null;
 
+    /**
+     * Cache the statement is handed back to, if any
+     */
+    private StatementCache cache = null;
+
     /**
      * The name of the RDBMS table
      */
@@ -52,9 +56,9 @@ public class TableRowIterator implements AutoCloseable
     private boolean hasAdvanced = false;
 
     /**
-     * Column names for the results in this table
+     * Column layout for the results in this table
      */
-    List<String> columnNames = null;
+    RowLayout layout = null;
 
     /**
      * Constructor
@@ -90,16 +94,16 @@ public class TableRowIterator implements AutoCloseable
         {
             try
             {
-                this.columnNames = (table == null) ? DatabaseManager.getColumnNames(results.getMetaData()) : DatabaseManager.getColumnNames(table);
+                this.layout = (table == null) ? new RowLayout(DatabaseManager.getColumnNames(results.getMetaData())) : DatabaseManager.getLayout(table);
             }
             catch (SQLException e)
             {
-                this.columnNames = null;
+                this.layout = null;
             }
         }
         else
         {
-            this.columnNames = Collections.unmodifiableList(columnNames);
+            this.layout = new RowLayout(columnNames);
         }
         
         statemt = null;
@@ -127,6 +131,21 @@ public class TableRowIterator implements AutoCloseable
         statemt = st;
     }
 
+    /**
+     * setStatement -- saves a statement obtained from a statement cache,
+     * to be handed back to the cache rather than closed when we are finished.
+     *
+     * @param st -
+     *            The statement used to do the query
+     * @param cache -
+     *            The cache the statement came from
+     */
+    void setStatement(Statement st, StatementCache cache)
+    {
+        statemt = st;
+        this.cache = cache;
+    }
+
     /**
      * Advance to the next row and return it. Returns null if there are no more
      * rows.
@@ -149,7 +168,11 @@ public class TableRowIterator implements AutoCloseable
 
         hasAdvanced = false;
 
-        return DatabaseManager.process(results, table, columnNames);
+        if (layout == null)
+        {
+            return DatabaseManager.process(results, table);
+        }
+        return DatabaseManager.process(results, table, layout);
     }
 
     /**
@@ -236,7 +259,14 @@ public class TableRowIterator implements AutoCloseable
         {
             if (statemt != null)
             {
-                statemt.close();
+                if (cache != null)
+                {
+                    cache.release(statemt);
+                }
+                else
+                {
+                    statemt.close();
+                }
                 statemt = null;
             }
         }
@@ -244,6 +274,6 @@ public class TableRowIterator implements AutoCloseable
         {
         }
 
-        columnNames = null;
+        layout = null;
     }
 }
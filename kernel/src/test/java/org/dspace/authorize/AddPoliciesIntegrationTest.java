@@ -0,0 +1,128 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authorize;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.core.Constants;
+import org.dspace.eperson.Group;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of copying policies to many objects, as when a
+ * collection's default policies are applied to its items, with the copies
+ * of each object inserted in one batch
+ */
+public class AddPoliciesIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of objects policies are copied to per invocation */
+    private static final int TARGETS = 100;
+
+    /** actions of the source policies, each granted to every group */
+    private static final int[] ACTIONS = { Constants.READ, Constants.WRITE, Constants.ADD, Constants.REMOVE };
+
+    /** number of groups granted the source policies */
+    private static final int GROUPS = 5;
+
+    /** object holding the source policies */
+    private Group source;
+
+    /** objects policies are copied to */
+    private List<Group> targets;
+
+    /** groups granted the source policies */
+    private List<Group> groups;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            source = Group.create(context);
+            groups = new ArrayList<Group>();
+            for (int i = 0; i < GROUPS; i++)
+            {
+                Group group = Group.create(context);
+                for (int action : ACTIONS)
+                {
+                    AuthorizeManager.addPolicy(context, source, action, group);
+                }
+                groups.add(group);
+            }
+            targets = new ArrayList<Group>();
+            for (int i = 0; i < TARGETS; i++)
+            {
+                targets.add(Group.create(context));
+            }
+            context.commit();
+        }
+        catch (AuthorizeException | SQLException ex)
+        {
+            fail("Unable to create groups: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            for (Group target : targets)
+            {
+                AuthorizeManager.removeAllPolicies(context, target);
+                target.delete();
+            }
+            AuthorizeManager.removeAllPolicies(context, source);
+            source.delete();
+            for (Group group : groups)
+            {
+                group.delete();
+            }
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Unable to remove groups: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    @Test
+    @PerfTest(invocations = 10, threads = 1)
+    public void testAddPolicies() throws AuthorizeException, SQLException
+    {
+        List<ResourcePolicy> policies = AuthorizeManager.getPolicies(context, source);
+        assertEquals("testAddPolicies 0", GROUPS * ACTIONS.length, policies.size());
+        for (Group target : targets)
+        {
+            AuthorizeManager.removeAllPolicies(context, target);
+            AuthorizeManager.addPolicies(context, policies, target);
+        }
+
+        List<ResourcePolicy> copies = AuthorizeManager.getPolicies(context, targets.get(0));
+        assertEquals("testAddPolicies 1", policies.size(), copies.size());
+        for (ResourcePolicy copy : copies)
+        {
+            assertEquals("testAddPolicies 2", Constants.GROUP, copy.getResourceType());
+            assertEquals("testAddPolicies 3", targets.get(0).getID(), copy.getResourceID());
+            assertTrue("testAddPolicies 4", policies.contains(copy));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authorize;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.eperson.Group;
+import org.dspace.event.ContainerEvent;
+import org.dspace.event.ContentEvent.EventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the authorization decision cache: decisions are reused,
+ * discarded when policies or containment change, and neither used nor
+ * cached by contexts with special groups or uncommitted changes
+ */
+public class AuthorizationCacheTest extends AbstractUnitTest
+{
+    private Community community;
+    private Collection collection;
+    private Item item;
+    private Bundle bundle;
+    private Bitstream bitstream;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            community = Community.create(null, context);
+            collection = community.createCollection();
+            item = WorkspaceItem.create(context, collection, false).getItem();
+            bundle = item.createBundle("ORIGINAL");
+            File f = new File(testProps.get("test.bitstream").toString());
+            bitstream = bundle.createBitstream(new FileInputStream(f));
+            context.restoreAuthSystemState();
+            context.commit();
+            AuthorizationCache.invalidateAll();
+        }
+        catch (Exception ex)
+        {
+            fail("Unable to create content: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        AuthorizationCache.invalidateAll();
+        community = null;
+        collection = null;
+        item = null;
+        bundle = null;
+        bitstream = null;
+        super.destroy();
+    }
+
+    /**
+     * A cached decision is returned until invalidated
+     */
+    @Test
+    public void testCacheHit()
+    {
+        assertNull("testCacheHit 0", AuthorizationCache.get(1, item, Constants.READ, true));
+        AuthorizationCache.put(1, item, Constants.READ, true, true, AuthorizationCache.generation());
+        assertEquals("testCacheHit 1", Boolean.TRUE, AuthorizationCache.get(1, item, Constants.READ, true));
+        assertNull("testCacheHit 2", AuthorizationCache.get(1, item, Constants.WRITE, true));
+        assertNull("testCacheHit 3", AuthorizationCache.get(2, item, Constants.READ, true));
+        assertNull("testCacheHit 4", AuthorizationCache.get(1, item, Constants.READ, false));
+    }
+
+    /**
+     * A decision computed before an invalidation is not cached
+     */
+    @Test
+    public void testStaleGeneration()
+    {
+        long generation = AuthorizationCache.generation();
+        AuthorizationCache.invalidate(bundle);
+        AuthorizationCache.put(1, item, Constants.READ, true, true, generation);
+        assertNull("testStaleGeneration 0", AuthorizationCache.get(1, item, Constants.READ, true));
+    }
+
+    /**
+     * Changing a policy discards decisions on its object, or on every
+     * object for ADMIN policies
+     */
+    @Test
+    public void testPolicyChange() throws Exception
+    {
+        AuthorizationCache.put(1, item, Constants.READ, true, true, AuthorizationCache.generation());
+        AuthorizationCache.put(1, bitstream, Constants.READ, true, true, AuthorizationCache.generation());
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, item, Constants.READ, Group.find(context, 0));
+        context.commit();
+        assertNull("testPolicyChange 0", AuthorizationCache.get(1, item, Constants.READ, true));
+        assertEquals("testPolicyChange 1", Boolean.TRUE, AuthorizationCache.get(1, bitstream, Constants.READ, true));
+
+        AuthorizeManager.addPolicy(context, collection, Constants.ADMIN, Group.find(context, 0));
+        context.commit();
+        context.restoreAuthSystemState();
+        assertNull("testPolicyChange 2", AuthorizationCache.get(1, bitstream, Constants.READ, true));
+    }
+
+    /**
+     * Moving or mapping an item discards decisions on its bundles and
+     * bitstreams, which inherit ADMIN rights from its collections
+     */
+    @Test
+    public void testMove() throws Exception
+    {
+        AuthorizationCache.put(1, item, Constants.ADMIN, true, true, AuthorizationCache.generation());
+        AuthorizationCache.put(1, bundle, Constants.ADMIN, true, true, AuthorizationCache.generation());
+        AuthorizationCache.put(1, bitstream, Constants.ADMIN, true, true, AuthorizationCache.generation());
+        new AuthorizationCache().invalidateContent(new ContainerEvent(context, collection, EventType.REMOVE, item));
+        assertNull("testMove 0", AuthorizationCache.get(1, item, Constants.ADMIN, true));
+        assertNull("testMove 1", AuthorizationCache.get(1, bundle, Constants.ADMIN, true));
+        assertNull("testMove 2", AuthorizationCache.get(1, bitstream, Constants.ADMIN, true));
+
+        AuthorizationCache.put(1, bitstream, Constants.ADMIN, true, true, AuthorizationCache.generation());
+        new AuthorizationCache().invalidateContent(new ContainerEvent(context, collection, EventType.ADD, item));
+        assertNull("testMove 3", AuthorizationCache.get(1, bitstream, Constants.ADMIN, true));
+    }
+
+    /**
+     * Decisions are cached for contexts without special groups or
+     * uncommitted changes only
+     */
+    @Test
+    public void testBypass() throws Exception
+    {
+        int userID = context.getCurrentUser().getID();
+        AuthorizeManager.authorizeActionBoolean(context, item, Constants.READ);
+        assertNotNull("testBypass 0", AuthorizationCache.get(userID, item, Constants.READ, true));
+
+        AuthorizationCache.invalidateAll();
+        Context special = new Context();
+        try
+        {
+            special.setCurrentUser(context.getCurrentUser());
+            special.setSpecialGroup(0);
+            AuthorizeManager.authorizeActionBoolean(special, item, Constants.READ);
+            assertNull("testBypass 1", AuthorizationCache.get(userID, item, Constants.READ, true));
+        }
+        finally
+        {
+            special.abort();
+        }
+
+        context.turnOffAuthorisationSystem();
+        AuthorizeManager.addPolicy(context, bundle, Constants.READ, Group.find(context, 0));
+        context.restoreAuthSystemState();
+        assertTrue("testBypass 2", context.hasAuthorizationChanges());
+        AuthorizeManager.authorizeActionBoolean(context, item, Constants.READ);
+        assertNull("testBypass 3", AuthorizationCache.get(userID, item, Constants.READ, true));
+
+        context.commit();
+        assertFalse("testBypass 4", context.hasAuthorizationChanges());
+        AuthorizeManager.authorizeActionBoolean(context, item, Constants.READ);
+        assertNotNull("testBypass 5", AuthorizationCache.get(userID, item, Constants.READ, true));
+    }
+}
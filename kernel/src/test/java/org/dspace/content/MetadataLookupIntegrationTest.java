@@ -0,0 +1,117 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.authorize.AuthorizeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Micro benchmark of in-memory metadata lookup on an item with 500 values,
+ * comparing indexed lookups with full scans (which a wildcard schema forces)
+ */
+public class MetadataLookupIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of lookups per invocation */
+    private static final int LOOKUPS = 1000;
+
+    /** item with 500 metadata values */
+    private Item item;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            item = Item.create(context);
+            for (int i = 0; i < 480; i++)
+            {
+                item.addMetadata("dc", "contributor", "author", null, "Author, " + i);
+            }
+            for (int i = 0; i < 10; i++)
+            {
+                item.addMetadata("dc", "subject", null, "en", "Subject " + i);
+                item.addMetadata("dc", "identifier", "uri", null, "http://example.org/" + i);
+            }
+            item.addMetadata("dc", "title", null, "en", "A title");
+            item.addMetadata("dc", "date", "issued", null, "2014");
+        }
+        catch (AuthorizeException | SQLException ex)
+        {
+            fail("Unable to create item: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            item.delete();
+            context.restoreAuthSystemState();
+        }
+        catch (Exception ex)
+        {
+            fail("Unable to remove item: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Indexed lookups must return what a full scan returns,
+     * and follow additions and removals
+     */
+    @Test
+    public void testIndexedMatchesScan()
+    {
+        assertEquals("testIndexedMatchesScan 0",
+                item.getMetadata(MDValue.ANY, "contributor", "author", MDValue.ANY),
+                item.getMetadata("dc", "contributor", "author", MDValue.ANY));
+        assertEquals("testIndexedMatchesScan 1", 10, item.getMetadata("dc.subject").size());
+        assertEquals("testIndexedMatchesScan 2", 12, item.getMetadata("dc", MDValue.ANY, null, MDValue.ANY).size());
+        assertEquals("testIndexedMatchesScan 3", 0, item.getMetadata("dc", "subject", null, null).size());
+
+        item.clearMetadata("dc", "subject", null, MDValue.ANY);
+        assertEquals("testIndexedMatchesScan 4", 0, item.getMetadata("dc.subject").size());
+        item.addMetadata("dc", "subject", null, "en", "New subject");
+        assertEquals("testIndexedMatchesScan 5", "New subject", item.getMetadataValue("dc.subject"));
+    }
+
+    @Test
+    @PerfTest(invocations = 200, threads = 1)
+    public void testIndexedLookup()
+    {
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            List<MDValue> titles = item.getMetadata("dc.title");
+            assertEquals(1, titles.size());
+        }
+    }
+
+    @Test
+    @PerfTest(invocations = 200, threads = 1)
+    public void testScanLookup()
+    {
+        for (int i = 0; i < LOOKUPS; i++)
+        {
+            List<MDValue> titles = item.getMetadata(MDValue.ANY, "title", null, MDValue.ANY);
+            assertEquals(1, titles.size());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.authorize.AuthorizeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of metadata persistence on object update, timing
+ * the save of items with 10, 100 and 5000 metadata values
+ */
+public class MetadataUpdateIntegrationTest extends AbstractIntegrationTest
+{
+    /** item metadata is written to */
+    private Item item;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            item = Item.create(context);
+            context.commit();
+        }
+        catch (AuthorizeException | SQLException ex)
+        {
+            fail("Unable to create item: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            item.delete();
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Unable to remove item: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Saved values must survive a reload, and changes must replace
+     * only the values changed
+     */
+    @Test
+    public void testUpdateRoundTrip() throws SQLException, AuthorizeException
+    {
+        saveAndChange(100);
+        context.commit();
+
+        Item reloaded = new Item(context, item.tableRow);
+        List<MDValue> authors = reloaded.getMetadata("dc", "contributor", "author", MDValue.ANY);
+        assertEquals("testUpdateRoundTrip 0", 100, authors.size());
+        assertEquals("testUpdateRoundTrip 1", 1, reloaded.getMetadata("dc", "title", null, MDValue.ANY).size());
+        assertEquals("testUpdateRoundTrip 2", "Changed title", reloaded.getMetadataValue("dc.title"));
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testUpdate10() throws SQLException, AuthorizeException
+    {
+        saveAndChange(10);
+        context.commit();
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testUpdate100() throws SQLException, AuthorizeException
+    {
+        saveAndChange(100);
+        context.commit();
+    }
+
+    @Test
+    @PerfTest(invocations = 5, threads = 1)
+    public void testUpdate5000() throws SQLException, AuthorizeException
+    {
+        saveAndChange(5000);
+        context.commit();
+    }
+
+    // replaces all authors with count new ones, then changes only the title
+    private void saveAndChange(int count) throws SQLException, AuthorizeException
+    {
+        item.clearMetadata("dc", "contributor", "author", MDValue.ANY);
+        item.clearMetadata("dc", "title", null, MDValue.ANY);
+        for (int i = 0; i < count; i++)
+        {
+            item.addMetadata("dc", "contributor", "author", null, "Author, " + i);
+        }
+        item.addMetadata("dc", "title", null, "en", "Original title");
+        item.update();
+
+        item.clearMetadata("dc", "title", null, MDValue.ANY);
+        item.addMetadata("dc", "title", null, "en", "Changed title");
+        item.update();
+    }
+}
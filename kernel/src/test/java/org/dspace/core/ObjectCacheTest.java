@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import static org.junit.Assert.*;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.Test;
+
+/**
+ * Unit tests for ObjectCache
+ */
+public class ObjectCacheTest extends AbstractUnitTest
+{
+    /**
+     * Test method for {@link org.dspace.core.ObjectCache#get(java.lang.Class, int)}.
+     */
+    @Test
+    public void testGetByClassAndID()
+    {
+        ObjectCache cache = new ObjectCache(0, false);
+        String s = "7";
+        StringBuilder sb = new StringBuilder("7");
+        cache.put(s, 7);
+        cache.put(sb, 7);
+        assertSame("testGetByClassAndID 0", s, cache.get(String.class, 7));
+        assertSame("testGetByClassAndID 1", sb, cache.get(StringBuilder.class, 7));
+        assertNull("testGetByClassAndID 2", cache.get(String.class, 8));
+        assertNull("testGetByClassAndID 3", cache.get(Integer.class, 7));
+        assertEquals("testGetByClassAndID 4", 2, cache.getHits());
+        assertEquals("testGetByClassAndID 5", 2, cache.getMisses());
+
+        cache.remove(String.class, 7);
+        assertNull("testGetByClassAndID 6", cache.get(String.class, 7));
+        assertEquals("testGetByClassAndID 7", 1, cache.size());
+    }
+
+    /**
+     * Test method for {@link org.dspace.core.ObjectCache#put(java.lang.Object, int)}
+     * growing well beyond the initial table size.
+     */
+    @Test
+    public void testManyObjects()
+    {
+        ObjectCache cache = new ObjectCache(0, false);
+        for (int i = 0; i < 10000; i++)
+        {
+            cache.put(Integer.valueOf(i), i);
+        }
+        assertEquals("testManyObjects 0", 10000, cache.size());
+        for (int i = 0; i < 10000; i++)
+        {
+            assertEquals("testManyObjects 1", Integer.valueOf(i), cache.get(Integer.class, i));
+        }
+        cache.clear();
+        assertEquals("testManyObjects 2", 0, cache.size());
+        assertNull("testManyObjects 3", cache.get(Integer.class, 1));
+    }
+
+    /**
+     * Test method for {@link org.dspace.core.ObjectCache#setLimit(int)}.
+     */
+    @Test
+    public void testLeastRecentlyUsedEviction()
+    {
+        ObjectCache cache = new ObjectCache(3, false);
+        cache.put("1", 1);
+        cache.put(Integer.valueOf(2), 2);
+        cache.put("3", 3);
+        // touch 1, so that 2 is least recently used
+        assertNotNull("testLeastRecentlyUsedEviction 0", cache.get(String.class, 1));
+        cache.put("4", 4);
+        assertEquals("testLeastRecentlyUsedEviction 1", 3, cache.size());
+        assertNull("testLeastRecentlyUsedEviction 2", cache.get(Integer.class, 2));
+        assertNotNull("testLeastRecentlyUsedEviction 3", cache.get(String.class, 1));
+        assertEquals("testLeastRecentlyUsedEviction 4", 1, cache.getEvictions());
+
+        cache.setLimit(1);
+        assertEquals("testLeastRecentlyUsedEviction 5", 1, cache.size());
+        assertNotNull("testLeastRecentlyUsedEviction 6", cache.get(String.class, 1));
+        assertEquals("testLeastRecentlyUsedEviction 7", 3, cache.getEvictions());
+    }
+
+    /**
+     * Test method for {@link org.dspace.core.ObjectCache#ObjectCache(int, boolean)}
+     * in soft reference mode.
+     */
+    @Test
+    public void testSoftReferences()
+    {
+        ObjectCache cache = new ObjectCache(0, true);
+        String s = "1";
+        cache.put(s, 1);
+        assertSame("testSoftReferences 0", s, cache.get(String.class, 1));
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.eperson;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.databene.contiperf.PerfTest;
+import org.databene.contiperf.Required;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Integration test of group cache (group2groupcache) maintenance, comparing
+ * incremental updates on membership change with a full rebuild
+ */
+public class GroupCacheIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of groups in the test hierarchy */
+    private static final int GROUPS = 200;
+
+    /** groups of a binary tree, parent of group i is group (i - 1) / 2 */
+    private List<Group> tree;
+
+    /** a group outside the tree, moved in and out of it */
+    private Group leaf;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            tree = new ArrayList<Group>();
+            for (int i = 0; i < GROUPS; i++)
+            {
+                Group group = Group.create(context);
+                if (i > 0)
+                {
+                    Group parent = tree.get((i - 1) / 2);
+                    parent.addMember(group);
+                    parent.update();
+                }
+                tree.add(group);
+            }
+            leaf = Group.create(context);
+            context.commit();
+        }
+        catch (AuthorizeException | SQLException ex)
+        {
+            fail("Unable to create group hierarchy: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        try
+        {
+            leaf.delete();
+            for (Group group : tree)
+            {
+                group.delete();
+            }
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (SQLException ex)
+        {
+            fail("Unable to remove group hierarchy: " + ex.getMessage());
+        }
+        super.destroy();
+    }
+
+    /**
+     * Incremental maintenance must leave the cache exactly as a rebuild would
+     */
+    @Test
+    public void testIncrementalMatchesRebuild() throws SQLException, AuthorizeException
+    {
+        Group deepest = tree.get(GROUPS - 1);
+        deepest.addMember(leaf);
+        deepest.update();
+        Set<String> incremental = readCache();
+        assertTrue("testIncrementalMatchesRebuild 0", incremental.contains(tree.get(0).getID() + ":" + leaf.getID()));
+
+        Group.rebuildGroupCache(context);
+        assertEquals("testIncrementalMatchesRebuild 1", readCache(), incremental);
+
+        deepest.removeMember(leaf);
+        deepest.update();
+        incremental = readCache();
+        assertFalse("testIncrementalMatchesRebuild 2", incremental.contains(tree.get(0).getID() + ":" + leaf.getID()));
+
+        Group.rebuildGroupCache(context);
+        assertEquals("testIncrementalMatchesRebuild 3", readCache(), incremental);
+
+        // removing an intermediate group detaches its descendants from its ancestors
+        Group middle = tree.get(1);
+        Group grandchild = tree.get(3);
+        tree.remove(middle);
+        middle.delete();
+        assertFalse("testIncrementalMatchesRebuild 4", readCache().contains(tree.get(0).getID() + ":" + grandchild.getID()));
+    }
+
+    /**
+     * Adds and removes a subgroup at the bottom of the hierarchy,
+     * maintaining the cache incrementally
+     */
+    @Test
+    @PerfTest(invocations = 50, threads = 1)
+    @Required(percentile95 = 200, average = 50)
+    public void testIncrementalUpdate() throws SQLException, AuthorizeException
+    {
+        Group deepest = tree.get(GROUPS - 1);
+        deepest.addMember(leaf);
+        deepest.update();
+        deepest.removeMember(leaf);
+        deepest.update();
+        context.commit();
+    }
+
+    /**
+     * Rebuilds the entire cache twice, the cost the same change
+     * had before incremental maintenance
+     */
+    @Test
+    @PerfTest(invocations = 50, threads = 1)
+    public void testFullRebuild() throws SQLException
+    {
+        Group.rebuildGroupCache(context);
+        Group.rebuildGroupCache(context);
+        context.commit();
+    }
+
+    private Set<String> readCache() throws SQLException
+    {
+        Set<String> pairs = new HashSet<String>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "group2groupcache",
+                "SELECT * FROM group2groupcache");
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                pairs.add(row.getIntColumn("parent_id") + ":" + row.getIntColumn("child_id"));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.handle;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.Community;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.Constants;
+
+/**
+ * Unit Tests for handle resolution through the handle cache
+ */
+public class HandleManagerTest extends AbstractUnitTest
+{
+    /** communities created, with handles */
+    private List<Community> communities;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            communities = new ArrayList<Community>();
+            for (int i = 0; i < 5; i++)
+            {
+                communities.add(Community.create(null, context));
+            }
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (AuthorizeException | SQLException ex)
+        {
+            fail("Unable to create communities: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        communities = null;
+        super.destroy();
+    }
+
+    /**
+     * Test resolution both ways, cached and not.
+     */
+    @Test
+    public void testResolve() throws Exception
+    {
+        Community comm = communities.get(0);
+        String handle = HandleManager.findHandle(context, comm);
+        assertNotNull("testResolve 0", handle);
+
+        for (int pass = 0; pass < 2; pass++)
+        {
+            assertEquals("testResolve 1", Constants.COMMUNITY, HandleManager.resolveToType(context, handle));
+            DSpaceObject dso = HandleManager.resolveToObject(context, handle);
+            assertNotNull("testResolve 2", dso);
+            assertEquals("testResolve 3", comm.getID(), dso.getID());
+            assertEquals("testResolve 4", handle, HandleManager.findHandle(context, Constants.COMMUNITY, comm.getID()));
+            HandleCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Test that an unbound handle no longer resolves, though cached before.
+     */
+    @Test
+    public void testUnbind() throws Exception
+    {
+        Community comm = communities.get(1);
+        String handle = HandleManager.findHandle(context, comm);
+        assertNotNull("testUnbind 0", HandleManager.resolveToObject(context, handle));
+
+        HandleManager.unbindHandle(context, comm);
+        assertNull("testUnbind 1", HandleManager.resolveToObject(context, handle));
+        assertEquals("testUnbind 2", -1, HandleManager.resolveToType(context, handle));
+        assertNull("testUnbind 3", HandleManager.findHandle(context, comm));
+    }
+
+    /**
+     * Test bulk lookup of handles, some cached and some not.
+     */
+    @Test
+    public void testFindHandles() throws Exception
+    {
+        HandleCache.invalidateAll();
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Community comm : communities)
+        {
+            ids.add(comm.getID());
+        }
+        // cache the first only
+        String first = HandleManager.findHandle(context, Constants.COMMUNITY, ids.get(0));
+
+        Map<Integer, String> handles = HandleManager.findHandles(context, Constants.COMMUNITY, ids);
+        assertEquals("testFindHandles 0", ids.size(), handles.size());
+        assertEquals("testFindHandles 1", first, handles.get(ids.get(0)));
+        for (Community comm : communities)
+        {
+            assertEquals("testFindHandles 2", comm.getHandle(), handles.get(comm.getID()));
+        }
+        assertTrue("testFindHandles 3", HandleManager.findHandles(context, Constants.COMMUNITY, new ArrayList<Integer>()).isEmpty());
+    }
+}
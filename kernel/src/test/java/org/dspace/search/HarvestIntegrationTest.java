@@ -0,0 +1,176 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.sql.SQLException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of partial harvests deep into a repository of 1M synthetic
+ * items, as OAI-PMH resumption requests make, comparing harvests
+ * continuing after an item ID with harvests skipping to an offset
+ */
+public class HarvestIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of synthetic items */
+    private static final int ITEMS = 1000000;
+
+    /** items per partial harvest, as OAI-PMH response.max-records */
+    private static final int PAGE = 100;
+
+    /** the synthetic items are all last modified on this day, and no others */
+    private static final String FROM = "1999-01-01";
+    private static final String UNTIL = "1999-01-01T23:59:59Z";
+
+    /** Handle prefix of the synthetic items */
+    private static final String PREFIX = "harvest-test/";
+
+    /** ID of the first synthetic item */
+    private static int firstID = -1;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            if (firstID == -1)
+            {
+                populate();
+            }
+        }
+        catch (SQLException ex)
+        {
+            fail("Unable to create items: " + ex.getMessage());
+        }
+    }
+
+    @AfterClass
+    public static void depopulate() throws SQLException
+    {
+        Context ctx = new Context();
+        try
+        {
+            DatabaseManager.updateQuery(ctx, "DELETE FROM handle WHERE handle LIKE ? ", PREFIX + "%");
+            DatabaseManager.updateQuery(ctx, "DELETE FROM item WHERE last_modified >= ? AND last_modified < ? ",
+                    java.sql.Timestamp.valueOf("1999-01-01 00:00:00"), java.sql.Timestamp.valueOf("1999-01-02 00:00:00"));
+            ctx.complete();
+        }
+        finally
+        {
+            if (ctx.isValid())
+            {
+                ctx.abort();
+            }
+        }
+    }
+
+    // inserts the synthetic items and their Handles, through DatabaseManager so IDs come as for any row
+    private void populate() throws SQLException
+    {
+        java.sql.Timestamp lastModified = java.sql.Timestamp.valueOf("1999-01-01 12:00:00");
+        for (int i = 0; i < ITEMS; i++)
+        {
+            TableRow item = DatabaseManager.row("item");
+            item.setColumn("in_archive", true);
+            item.setColumn("withdrawn", false);
+            item.setColumn("last_modified", lastModified);
+            DatabaseManager.insert(context, item);
+            int itemID = item.getIntColumn("item_id");
+            TableRow handle = DatabaseManager.row("handle");
+            handle.setColumn("handle", PREFIX + itemID);
+            handle.setColumn("resource_type_id", Constants.ITEM);
+            handle.setColumn("resource_id", itemID);
+            DatabaseManager.insert(context, handle);
+            if (firstID == -1)
+            {
+                firstID = itemID;
+            }
+            if (i % 10000 == 9999)
+            {
+                context.commit();
+            }
+        }
+        context.commit();
+    }
+
+    /**
+     * Consecutive partial harvests must return what harvests at offsets do
+     */
+    @Test
+    public void testPages() throws SQLException, ParseException
+    {
+        int afterID = -1;
+        for (int page = 0; page < 5; page++)
+        {
+            List<HarvestedItemInfo> byOffset = Harvest.harvest(context, null, FROM, UNTIL,
+                    page * PAGE, PAGE, false, false, true, true);
+            List<HarvestedItemInfo> after = Harvest.harvestAfter(context, null, FROM, UNTIL,
+                    afterID, PAGE, false, false, true, true);
+            assertEquals("testPages 0", PAGE, after.size());
+            for (int i = 0; i < PAGE; i++)
+            {
+                assertEquals("testPages 1", byOffset.get(i).itemID, after.get(i).itemID);
+                assertEquals("testPages 2", byOffset.get(i).handle, after.get(i).handle);
+            }
+            afterID = after.get(PAGE - 1).itemID;
+        }
+    }
+
+    /**
+     * The iterator must return every item once, in item ID order
+     */
+    @Test
+    public void testIterator() throws SQLException, ParseException
+    {
+        Iterator<HarvestedItemInfo> iter = Harvest.harvestIterator(context, null, FROM, UNTIL,
+                1000, false, false, true, true);
+        int count = 0;
+        int lastID = -1;
+        while (iter.hasNext())
+        {
+            HarvestedItemInfo itemInfo = iter.next();
+            assertTrue("testIterator 0", itemInfo.itemID > lastID);
+            lastID = itemInfo.itemID;
+            count++;
+        }
+        assertEquals("testIterator 1", ITEMS, count);
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testHarvestAfter() throws SQLException, ParseException
+    {
+        List<HarvestedItemInfo> page = Harvest.harvestAfter(context, null, FROM, UNTIL,
+                firstID + ITEMS / 2, PAGE, false, false, true, true);
+        assertEquals(PAGE, page.size());
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 1)
+    public void testHarvestOffset() throws SQLException, ParseException
+    {
+        List<HarvestedItemInfo> page = Harvest.harvest(context, null, FROM, UNTIL,
+                ITEMS / 2, PAGE, false, false, true, true);
+        assertEquals(PAGE, page.size());
+    }
+}
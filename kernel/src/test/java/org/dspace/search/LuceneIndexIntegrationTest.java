@@ -0,0 +1,174 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of the Lucene index with its shared writer: documents indexed
+ * per second by concurrent indexers, and query latency while documents are
+ * being indexed. Also checks that changes become searchable without an
+ * explicit commit, and that queued changes coalesce.
+ */
+public class LuceneIndexIntegrationTest extends AbstractIntegrationTest
+{
+    /** Handle prefix of the test documents */
+    private static final String PREFIX = "lucene-test/";
+
+    /** the index under test, in a directory of its own */
+    private static LuceneIndex index;
+
+    /** sequence of test document IDs */
+    private static final AtomicInteger sequence = new AtomicInteger();
+
+    /** indexes documents in the background, while queries are benchmarked */
+    private static Thread indexer;
+    private static volatile boolean indexing;
+
+    @BeforeClass
+    public static void createIndex() throws IOException
+    {
+        index = new LuceneIndex();
+        index.init(Files.createTempDirectory("lucene-test").toString());
+        // something to find from the start
+        for (int i = 0; i < 1000; i++)
+        {
+            index.doTask(task("benchmark seed"));
+        }
+        indexing = true;
+        indexer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while (indexing)
+                    {
+                        index.doTask(task("benchmark background"));
+                    }
+                }
+                catch (IOException ex)
+                {
+                    indexing = false;
+                }
+            }
+        };
+        indexer.start();
+    }
+
+    @AfterClass
+    public static void stopIndexing() throws InterruptedException
+    {
+        indexing = false;
+        indexer.join();
+    }
+
+    // a task indexing a new document, named with the words given
+    private static IndexingTask task(String name)
+    {
+        int id = sequence.incrementAndGet();
+        IndexingTask task = new IndexingTask(IndexingTask.Action.UPDATE);
+        task.addField(DSIndexer.DOCUMENT_KEY, PREFIX + id);
+        task.addField("search.resourcetype", Integer.toString(Constants.ITEM));
+        task.addField("search.resourceid", Integer.toString(id));
+        task.addField(DSIndexer.LAST_INDEXED_FIELD, Long.toString(System.currentTimeMillis()));
+        task.addField("name", name);
+        return task;
+    }
+
+    private static QueryResults query(String words) throws IOException
+    {
+        QueryArgs args = new QueryArgs();
+        args.setQuery(words);
+        args.setPageSize(10);
+        return index.doQuery(args);
+    }
+
+    /**
+     * A document indexed must be found once searchers are refreshed
+     */
+    @Test
+    public void testVisibility() throws IOException, InterruptedException
+    {
+        IndexingTask task = task("visibility probe");
+        String handle = task.getFieldValue(DSIndexer.DOCUMENT_KEY);
+        index.doTask(task);
+        Thread.sleep(2 * ConfigurationManager.getIntProperty("search", "searcher.refresh", 1000) + 500);
+        QueryResults results = query("probe");
+        assertEquals("testVisibility 0", 1, results.getHitCount());
+        assertEquals("testVisibility 1", handle, results.getHitHandles().get(0));
+        assertFalse("testVisibility 2", index.isDocumentStale(handle, new Date(0)));
+        assertTrue("testVisibility 3", index.isDocumentStale(PREFIX + "none", new Date(0)));
+        Long lastIndexed = index.getLastIndexed().get(handle);
+        assertNotNull("testVisibility 4", lastIndexed);
+        assertEquals("testVisibility 5", task.getFieldValue(DSIndexer.LAST_INDEXED_FIELD), lastIndexed.toString());
+    }
+
+    /**
+     * Changes queued in a batch must coalesce to the last change of each document
+     */
+    @Test
+    public void testCoalescing() throws IOException
+    {
+        LuceneIndex batchIndex = new LuceneIndex();
+        batchIndex.init(Files.createTempDirectory("lucene-test").toString());
+        IndexingTask kept = task("coalescing kept");
+        String keptHandle = kept.getFieldValue(DSIndexer.DOCUMENT_KEY);
+        IndexingTask deleted = task("coalescing deleted");
+        String deletedHandle = deleted.getFieldValue(DSIndexer.DOCUMENT_KEY);
+
+        batchIndex.doTask(new IndexingTask(IndexingTask.Action.TX_BEGIN));
+        batchIndex.doTask(kept);
+        batchIndex.doTask(deleted);
+        IndexingTask delete = new IndexingTask(IndexingTask.Action.DELETE);
+        delete.addField(DSIndexer.DOCUMENT_KEY, deletedHandle);
+        batchIndex.doTask(delete);
+        IndexingTask rekept = new IndexingTask(IndexingTask.Action.UPDATE);
+        rekept.addField(DSIndexer.DOCUMENT_KEY, keptHandle);
+        rekept.addField("search.resourcetype", Integer.toString(Constants.ITEM));
+        rekept.addField("name", "coalescing again");
+        batchIndex.doTask(rekept);
+        assertTrue("testCoalescing 0", batchIndex.isDocumentStale(keptHandle, new Date(0)));
+        batchIndex.doTask(new IndexingTask(IndexingTask.Action.TX_END));
+
+        QueryArgs args = new QueryArgs();
+        args.setQuery("coalescing");
+        QueryResults results = batchIndex.doQuery(args);
+        assertEquals("testCoalescing 1", 1, results.getHitCount());
+        assertEquals("testCoalescing 2", keptHandle, results.getHitHandles().get(0));
+        args.setQuery("kept");
+        assertEquals("testCoalescing 3", 0, batchIndex.doQuery(args).getHitCount());
+    }
+
+    @Test
+    @PerfTest(invocations = 20000, threads = 4)
+    public void testIndexing() throws IOException
+    {
+        index.doTask(task("benchmark indexing"));
+    }
+
+    @Test
+    @PerfTest(invocations = 500, threads = 4)
+    public void testQueryWhileIndexing() throws IOException
+    {
+        assertTrue(query("benchmark").getHitCount() > 0);
+    }
+}
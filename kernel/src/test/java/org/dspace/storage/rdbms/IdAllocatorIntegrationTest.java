@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.dspace.core.Context;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Load test of row inserts by concurrent contexts, comparing a sequence call
+ * per row with IDs handed out from reserved blocks. Reports the inserts per
+ * second of each.
+ */
+public class IdAllocatorIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of rows inserted per invocation */
+    private static final int ROWS = 500;
+
+    /** number of IDs reserved at a time */
+    private static final int BLOCK_SIZE = 50;
+
+    /** the inserted rows are all last modified at this time, and no others */
+    private static final Timestamp MARKER = Timestamp.valueOf("1999-02-01 12:00:00");
+
+    /** IDs handed out by all threads */
+    private static final Set<Integer> allocated = Collections.synchronizedSet(new HashSet<Integer>());
+
+    /** rows inserted and milliseconds spent, summed over threads - per row, then with blocks */
+    private static final AtomicLong[] inserted = { new AtomicLong(), new AtomicLong() };
+    private static final AtomicLong[] elapsed = { new AtomicLong(), new AtomicLong() };
+
+    /** block size configured */
+    private static final int configured = IdAllocator.getBlockSize();
+
+    @AfterClass
+    public static void report() throws SQLException
+    {
+        IdAllocator.setBlockSize(configured);
+        System.out.println("Inserts per second per thread - sequence per row: " + rate(0) +
+                           ", reserved blocks of " + BLOCK_SIZE + ": " + rate(1));
+        Context ctx = new Context();
+        try
+        {
+            DatabaseManager.updateQuery(ctx, "DELETE FROM item WHERE last_modified = ? ", MARKER);
+            ctx.complete();
+        }
+        finally
+        {
+            if (ctx.isValid())
+            {
+                ctx.abort();
+            }
+        }
+    }
+
+    private static long rate(int mode)
+    {
+        return inserted[mode].get() * 1000L / Math.max(1L, elapsed[mode].get());
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 4)
+    public void testInsertSequencePerRow() throws SQLException
+    {
+        insert(0, 1);
+    }
+
+    @Test
+    @PerfTest(invocations = 20, threads = 4)
+    public void testInsertBlocks() throws SQLException
+    {
+        insert(1, BLOCK_SIZE);
+    }
+
+    // inserts rows in a context of their own, checking no ID was handed out before
+    private void insert(int mode, int blockSize) throws SQLException
+    {
+        // all threads of a test set the same size; the configured size is restored after all tests
+        IdAllocator.setBlockSize(blockSize);
+        Context ctx = new Context();
+        try
+        {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < ROWS; i++)
+            {
+                TableRow row = DatabaseManager.row("item");
+                row.setColumn("in_archive", false);
+                row.setColumn("withdrawn", false);
+                row.setColumn("last_modified", MARKER);
+                DatabaseManager.insert(ctx, row);
+                int id = row.getIntColumn("item_id");
+                assertTrue("duplicate ID " + id, allocated.add(id));
+            }
+            ctx.complete();
+            inserted[mode].addAndGet(ROWS);
+            elapsed[mode].addAndGet(System.currentTimeMillis() - start);
+        }
+        finally
+        {
+            if (ctx.isValid())
+            {
+                ctx.abort();
+            }
+        }
+    }
+}
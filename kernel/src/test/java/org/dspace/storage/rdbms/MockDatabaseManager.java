@@ -690,20 +690,33 @@ public class MockDatabaseManager
     }
 
     /**
-     * Insert a table row into the RDBMS.
+     * Reserve IDs for new rows of a table from its H2 sequence.
      *
      * @param context
      *            Current DSpace context
-     * @param row
-     *            The row to insert
+     * @param table
+     *            The name of the table
+     * @param count
+     *            The number of IDs to reserve
+     * @return The IDs, in sequence order
      * @exception SQLException
      *                If a database error occurs
      */
     @Mock
-    public static void insert(Context context, TableRow row) throws SQLException
+    public static List<Integer> reserveIds(Context context, String table, int count) throws SQLException
+    {
+        List<Integer> reserved = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++)
+        {
+            reserved.add(nextId(context, table));
+        }
+        return reserved;
+    }
+
+    // next value of the table's sequence
+    private static int nextId(Context context, String table) throws SQLException
     {
         int newID = -1;
-        String table = row.getTable();
         Statement statement = null;
         ResultSet rs = null;
 
@@ -735,6 +748,25 @@ public class MockDatabaseManager
 
         if (newID < 0)
             throw new SQLException("Unable to retrieve sequence ID");
+        return newID;
+    }
+
+    /**
+     * Insert a table row into the RDBMS.
+     *
+     * @param context
+     *            Current DSpace context
+     * @param row
+     *            The row to insert
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    @Mock
+    public static void insert(Context context, TableRow row) throws SQLException
+    {
+        String table = row.getTable();
+        // with IDs allocated in blocks, take the ID from the table's block, as DatabaseManager does
+        int newID = IdAllocator.isEnabled() ? IdAllocator.nextId(context, table) : nextId(context, table);
 
         // Set the ID in the table row object
         row.setColumn(getPrimaryKeyColumn(table), newID);
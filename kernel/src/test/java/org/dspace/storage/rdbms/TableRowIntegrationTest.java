@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.storage.rdbms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.databene.contiperf.PerfTest;
+import org.dspace.AbstractIntegrationTest;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Micro benchmark of building and reading rows as a bulk scan does,
+ * comparing TableRow (shared layout, value array) with the map-per-row
+ * representation it replaced
+ */
+public class TableRowIntegrationTest extends AbstractIntegrationTest
+{
+    /** number of rows per invocation */
+    private static final int ROWS = 10000;
+
+    /** columns of the item table */
+    private static final List<String> COLUMNS = Arrays.asList("item_id", "submitter_id",
+            "in_archive", "withdrawn", "last_modified", "owning_collection", "discoverable");
+
+    private static final RowLayout LAYOUT = new RowLayout(COLUMNS);
+
+    /**
+     * Values and change flags must behave as they did
+     */
+    @Test
+    public void testColumns()
+    {
+        TableRow row = new TableRow("item", LAYOUT);
+        assertTrue("testColumns 0", row.hasColumnChanged("item_id"));
+        assertTrue("testColumns 1", row.isColumnNull("ITEM_ID"));
+        row.load(0, Integer.valueOf(7));
+        row.load(2, Boolean.TRUE);
+        row.resetChanged();
+        assertEquals("testColumns 2", 7, row.getIntColumn("Item_ID"));
+        assertTrue("testColumns 3", row.getBooleanColumn("in_archive"));
+        assertFalse("testColumns 4", row.hasColumnChanged("item_id"));
+
+        row.setColumn("item_id", 7);
+        assertFalse("testColumns 5", row.hasColumnChanged("item_id"));
+        row.setColumn("item_id", 8);
+        assertTrue("testColumns 6", row.hasColumnChanged("item_id"));
+        row.setColumnNull("owning_collection");
+        assertFalse("testColumns 7", row.hasColumnChanged("owning_collection"));
+        assertEquals("testColumns 8", -1, row.getIntColumn("owning_collection"));
+
+        assertTrue("testColumns 9", row.hasColumn("withdrawn"));
+        assertFalse("testColumns 10", row.hasColumn("no_column"));
+        try
+        {
+            row.getIntColumn("no_column");
+            fail("testColumns 11");
+        }
+        catch (IllegalArgumentException iae)
+        {
+            // expected
+        }
+
+        TableRow other = new TableRow("item", COLUMNS);
+        other.setColumn("item_id", 8);
+        other.setColumn("in_archive", true);
+        assertEquals("testColumns 12", row, other);
+    }
+
+    @Test
+    @PerfTest(invocations = 100, threads = 1)
+    public void testArrayRows()
+    {
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++)
+        {
+            TableRow row = new TableRow("item", LAYOUT);
+            row.load(LAYOUT.indexOf("item_id"), Integer.valueOf(i));
+            row.load(LAYOUT.indexOf("submitter_id"), Integer.valueOf(1));
+            row.load(LAYOUT.indexOf("in_archive"), Boolean.TRUE);
+            row.load(LAYOUT.indexOf("owning_collection"), Integer.valueOf(2));
+            row.resetChanged();
+            sum += row.getIntColumn("item_id") + row.getIntColumn("owning_collection");
+        }
+        assertTrue(sum > 0);
+    }
+
+    @Test
+    @PerfTest(invocations = 100, threads = 1)
+    public void testMapRows()
+    {
+        long sum = 0;
+        for (int i = 0; i < ROWS; i++)
+        {
+            MapRow row = new MapRow(COLUMNS);
+            row.setColumn("item_id", Integer.valueOf(i));
+            row.setColumn("submitter_id", Integer.valueOf(1));
+            row.setColumn("in_archive", Boolean.TRUE);
+            row.setColumn("owning_collection", Integer.valueOf(2));
+            row.resetChanged();
+            sum += row.getIntColumn("item_id") + row.getIntColumn("owning_collection");
+        }
+        assertTrue(sum > 0);
+    }
+
+    // the former TableRow representation: two maps per row, keyed by column name
+    private static class MapRow
+    {
+        private static final Object NULL_OBJECT = new Object();
+
+        private Map<String, Object> data = new HashMap<String, Object>();
+
+        private Map<String, Boolean> changed = new HashMap<String, Boolean>();
+
+        MapRow(List<String> columns)
+        {
+            for (String column : columns)
+            {
+                String canonicalized = ColumnInfo.canonicalize(column);
+                data.put(canonicalized, NULL_OBJECT);
+                changed.put(canonicalized, Boolean.TRUE);
+            }
+        }
+
+        void setColumn(String column, Object value)
+        {
+            String canonicalized = canonicalizeAndCheck(column);
+            if (!value.equals(data.get(canonicalized)))
+            {
+                data.put(canonicalized, value);
+                changed.put(canonicalized, Boolean.TRUE);
+            }
+        }
+
+        int getIntColumn(String column)
+        {
+            Object value = data.get(canonicalizeAndCheck(column));
+            return (value == NULL_OBJECT) ? -1 : ((Integer) value).intValue();
+        }
+
+        void resetChanged()
+        {
+            for (String column : changed.keySet())
+            {
+                changed.put(column, Boolean.FALSE);
+            }
+        }
+
+        private String canonicalizeAndCheck(String column)
+        {
+            if (data.containsKey(column))
+            {
+                return column;
+            }
+            String canonicalized = ColumnInfo.canonicalize(column);
+            if (data.containsKey(canonicalized))
+            {
+                return canonicalized;
+            }
+            throw new IllegalArgumentException("No such column " + canonicalized);
+        }
+    }
+}
@@ -699,3 +699,33 @@ CREATE TABLE command
   fwd_user_args        BOOL,
   successor            INTEGER 
 );
+
+-------------------------------------------------------
+-- OAIRecord table: rendered OAI-PMH records, by item
+-- and metadata prefix, valid while the item's
+-- last_modified and sets are those recorded
+-------------------------------------------------------
+CREATE TABLE oairecord
+(
+  item_id              INTEGER,
+  metadata_prefix      VARCHAR(64),
+  last_modified        TIMESTAMP,
+  set_specs            TEXT,
+  record               TEXT,
+  PRIMARY KEY (item_id, metadata_prefix)
+);
+
+-------------------------------------------------------
+-- ExtractedText table: text extracted from bitstreams
+-- by index stream parsers, by bitstream checksum and
+-- parser, evicted by last use
+-------------------------------------------------------
+CREATE TABLE extractedtext
+(
+  text_key             VARCHAR(256) PRIMARY KEY,
+  content              TEXT,
+  content_size         BIGINT,
+  last_used            TIMESTAMP
+);
+
+CREATE INDEX extractedtext_last_used_idx ON extractedtext(last_used);
@@ -9,6 +9,7 @@ package org.dspace.app.oaipmh;
 
 import java.sql.SQLException;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -18,23 +19,33 @@ import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.dspace.authorize.AuthorizeManager;
-import org.dspace.content.BoundedIterator;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
-import org.dspace.core.Utils;
 import org.dspace.handle.HandleManager;
 import org.dspace.search.Harvest;
 import org.dspace.search.HarvestedItemInfo;
+import org.dspace.search.OAIRecordCache;
+import org.dspace.search.OAISetCache;
 import org.dspace.eperson.Group;
 
 import ORG.oclc.oai.server.catalog.AbstractCatalog;
@@ -63,11 +74,27 @@ public class DSpaceOAICatalog extends AbstractCatalog {
     /** Prefix that all our OAI identifiers have */
     public static final String OAI_ID_PREFIX = "oai:" + ConfigurationManager.getProperty("dspace.hostname") + ":";
 
+    /**
+     * Marks the cursor of resumption tokens as the ID of the last item
+     * harvested, telling them from older tokens whose cursor was an offset
+     */
+    private static final String AFTER_ID_MARKER = "i";
+
     /** Maximum number of records returned by one request */
     private final int MAX_RECORDS = ConfigurationManager.getIntProperty("oai-pmh","response.max-records", 100);
 
+    /** Maximum number of seconds to wait for a record to be rendered */
+    private final int RENDER_TIMEOUT = ConfigurationManager.getIntProperty("oai-pmh", "render.timeout", 30);
+
+    /** Pool rendering the records of a response concurrently, or null */
+    private final ExecutorService renderPool;
+
     public DSpaceOAICatalog(Properties properties) {
-        // Don't need to do anything
+        int threads = ConfigurationManager.getIntProperty("oai-pmh", "render.threads", 0);
+        renderPool = (threads > 0)
+                ? Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                        .setNameFormat("oai-render-%d").setDaemon(true).build())
+                : null;
     }
 
     /**
@@ -98,7 +125,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
 
         // Get the item from the DB
         try  {
-            context = new Context();
+            context = new Context(Context.READ_ONLY);
 
             // Valid identifiers all have prefix "oai:hostname:"
             if (identifier != null && identifier.startsWith(OAI_ID_PREFIX)) {
@@ -174,47 +201,117 @@ public class DSpaceOAICatalog extends AbstractCatalog {
                  ",set=" + ((set == null) ? "null" : set) +
                  ",metadataPrefix=" + ((metadataPrefix == null) ? "null" : metadataPrefix)));
 
+        Map m = doIdentifierHarvest(from, until, set, metadataPrefix, -1);
+
+        // If there were zero results, return the appropriate error
+        Iterator i = (Iterator) m.get("identifiers");
+
+        if (!i.hasNext()) {
+            log.info(LogManager.getHeader(null, "oai_error", "no_items_match"));
+            throw new NoItemsMatchException();
+        }
+
+        return m;
+    }
+
+    /**
+     * Retrieve the next set of identifiers associated with the resumptionToken
+     * 
+     * @param resumptionToken
+     *            implementation-dependent format taken from the previous
+     *            listIdentifiers() Map result.
+     * @return a Map object containing entries for "headers" and "identifiers"
+     *         Iterators (both containing Strings) as well as an optional
+     *         "resumptionMap" Map.
+     * @exception BadResumptionTokenException
+     *                the value of the resumptionToken is invalid or expired.
+     * @exception OAIInternalServerError
+     *                signals an http status code 500 problem
+     */
+    @Override
+    public Map listIdentifiers(String resumptionToken)
+            throws BadResumptionTokenException, OAIInternalServerError {
+        log.info(LogManager.getHeader(null, "oai_request",
+                "verb=listIdentifiers,resumptionToken=" + resumptionToken));
+
+        Object[] params = decodeResumptionToken(resumptionToken);
+        Integer afterID = (Integer) params[4];
+
+        /*
+         * A bad set spec in the token is a bad resumption token
+         */
+        try {
+            return doIdentifierHarvest((String) params[0], (String) params[1],
+                    (String) params[2], (String) params[3], afterID.intValue());
+        } catch (BadArgumentException bae) {
+            log.info(LogManager.getHeader(null, "oai_error",
+                    "bad_resumption_token"));
+            throw new BadResumptionTokenException();
+        }
+    }
+
+    /**
+     * Method to do the actual harvest of identifiers, at most MAX_RECORDS
+     * of them
+     * 
+     * @param from
+     *            OAI 'from' parameter
+     * @param until
+     *            OAI 'until' parameter
+     * @param set
+     *            OAI 'set' parameter
+     * @param metadataPrefix
+     *            OAI 'metadataPrefix' parameter
+     * @param afterID
+     *            ID of the last item of the previous harvest, or -1 to start
+     *            at the beginning
+     * 
+     * @return the Map for listIdentifiers to return
+     */
+    private Map doIdentifierHarvest(String from, String until, String set,
+            String metadataPrefix, int afterID) throws OAIInternalServerError,
+            BadArgumentException {
         // We can produce oai_dc and simple DC for all items, so just return IDs
         Context context = null;
 
         // Lists to put results in
         List<String> headers = new LinkedList<String>();
         List<String> identifiers = new LinkedList<String>();
+        Map results = new HashMap();
 
         try  {
-            context = new Context();
+            context = new Context(Context.READ_ONLY);
 
             // Get the relevant OAIItemInfo objects to make headers
             DSpaceObject scope = resolveSet(context, set);
             boolean includeAll = ConfigurationManager.getBooleanProperty("oai-pmh", "harvest.includerestricted.oai", true);
-            // Warning: In large repositories, setting harvest.includerestricted.oai to false may cause
-            // performance problems as all items will need to have their authorization permissions checked,
-            // but because we haven't implemented resumption tokens in ListIdentifiers, ALL items will
-            // need checking whenever a ListIdentifiers request is made.
-            List<HarvestedItemInfo> itemInfos = Harvest.harvest(context, scope, from, until, 0, 0, // Everything
-                                                                                // for
-                                                                                // now
+            // Items are only needed (and their authorization checked) if
+            // restricted items are excluded
+            List<HarvestedItemInfo> itemInfos = Harvest.harvestAfter(context, scope, from, until,
+                    afterID, MAX_RECORDS, // Limit amount returned from one
+                                          // request
                     !includeAll, true, true, includeAll);
 
-            // No Item objects, but we need to know collections they're in and
-            // withdrawn items
-            if (itemInfos.size() == 0)  {
-                log.info(LogManager.getHeader(null, "oai_error",
-                        "no_items_match"));
-                throw new NoItemsMatchException();
-            }
-
             // Build up lists of headers and identifiers
-            Iterator<HarvestedItemInfo> i = itemInfos.iterator();
-
-            while (i.hasNext()) {
-                HarvestedItemInfo itemInfo = i.next();
-
+            for (HarvestedItemInfo itemInfo : itemInfos) {
                 String[] header = getRecordFactory().createHeader(itemInfo);
 
                 headers.add(header[0]);
                 identifiers.add(header[1]);
             }
+
+            // If we have MAX_RECORDS identifiers, we need to provide a
+            // resumption token, continuing after the last item harvested
+            if (itemInfos.size() >= MAX_RECORDS) {
+                int lastID = itemInfos.get(itemInfos.size() - 1).itemID;
+                String resumptionToken = makeResumptionToken(from, until, set,
+                        metadataPrefix, lastID);
+
+                log.debug(LogManager.getHeader(context, "made_resumption_token",
+                                    "token=" + resumptionToken));
+
+                results.put("resumptionMap", getResumptionMap(resumptionToken));
+            }
         } catch (SQLException se) {
             // Log the error
             log.warn(LogManager.getHeader(context, "database_error", ""), se);
@@ -231,34 +328,12 @@ public class DSpaceOAICatalog extends AbstractCatalog {
         }
 
         // Put results in form needed to return
-        Map<String, Iterator<String>> results = new HashMap<String, Iterator<String>>();
         results.put("headers", headers.iterator());
         results.put("identifiers", identifiers.iterator());
 
         return results;
     }
 
-    /**
-     * Retrieve the next set of identifiers associated with the resumptionToken
-     * 
-     * @param resumptionToken
-     *            implementation-dependent format taken from the previous
-     *            listIdentifiers() Map result.
-     * @return a Map object containing entries for "headers" and "identifiers"
-     *         Iterators (both containing Strings) as well as an optional
-     *         "resumptionMap" Map.
-     * @exception BadResumptionTokenException
-     *                the value of the resumptionToken is invalid or expired.
-     * @exception OAIInternalServerError
-     *                signals an http status code 500 problem
-     */
-    @Override
-    public Map listIdentifiers(String resumptionToken)
-            throws BadResumptionTokenException, OAIInternalServerError {
-        // Resumption tokens not yet supported
-        throw new BadResumptionTokenException();
-    }
-
     /**
      * Retrieve the specified metadata for the specified identifier
      * 
@@ -290,7 +365,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
         try {
             // Valid IDs start with oai:hostname:
             if (identifier != null && identifier.startsWith(OAI_ID_PREFIX)) {
-                context = new Context();
+                context = new Context(Context.READ_ONLY);
 
                 /*
                  * Try and get the item. the .substring() is to strip the
@@ -390,7 +465,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
                  ",metadataPrefix=" + ((metadataPrefix == null) ? "null"
                                         : metadataPrefix)));
 
-        Map m = doRecordHarvest(from, until, set, metadataPrefix, 0);
+        Map m = doRecordHarvest(from, until, set, metadataPrefix, -1);
 
         // Null means bad metadata prefix was bad
         if (m == null) {
@@ -437,7 +512,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
          * that's OK.
          */
         Object[] params = decodeResumptionToken(resumptionToken);
-        Integer offset = (Integer) params[4];
+        Integer afterID = (Integer) params[4];
 
         Map m = null;
 
@@ -448,7 +523,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
          */
         try {
             m = doRecordHarvest((String) params[0], (String) params[1],
-                    (String) params[2], (String) params[3], offset.intValue());
+                    (String) params[2], (String) params[3], afterID.intValue());
         } catch (BadArgumentException bae) {
             m = null;
         }
@@ -474,14 +549,15 @@ public class DSpaceOAICatalog extends AbstractCatalog {
      *            OAI 'set' parameter
      * @param metadataPrefix
      *            OAI 'metadataPrefix' parameter
-     * @param offset
-     *            where to start this harvest
+     * @param afterID
+     *            ID of the last item of the previous harvest, or -1 to start
+     *            at the beginning
      * 
      * @return the Map for listRecords to return, or null if the metadataPrefix
      *         is invalid
      */
     private Map doRecordHarvest(String from, String until, String set,
-            String metadataPrefix, int offset) throws OAIInternalServerError,
+            String metadataPrefix, int afterID) throws OAIInternalServerError,
             BadArgumentException {
         Context context = null;
         String schemaURL = getCrosswalks().getSchemaURL(metadataPrefix);
@@ -495,36 +571,50 @@ public class DSpaceOAICatalog extends AbstractCatalog {
         List<String> records = new LinkedList<String>();
 
         try {
-            context = new Context();
+            context = new Context(Context.READ_ONLY);
 
             // Get the relevant HarvestedItemInfo objects to make headers
             DSpaceObject scope = resolveSet(context, set);
             boolean includeAll = ConfigurationManager.getBooleanProperty("oai", "harvest.includerestricted.oai", true);
-            List<HarvestedItemInfo> itemInfos = Harvest.harvest(context, scope, from, until,
-                    offset, MAX_RECORDS, // Limit amount returned from one
-                                         // request
-                    true, true, true, includeAll); // Need items, containers + withdrawals
-
-            // Build list of XML records from item info objects
+            // Items are only loaded here when needed to check access, or to
+            // render all records in this context; otherwise records not
+            // cached load their items as they are rendered
+            boolean cached = OAIRecordCache.isEnabled();
+            boolean loadItems = !includeAll || (!cached && renderPool == null);
+            List<HarvestedItemInfo> itemInfos = Harvest.harvestAfter(context, scope, from, until,
+                    afterID, MAX_RECORDS, // Limit amount returned from one
+                                          // request
+                    loadItems, true, true, includeAll); // Need items, containers + withdrawals
+            Map<Integer, String> cachedRecords = cached
+                    ? OAIRecordCache.getRecords(context, metadataPrefix, itemInfos)
+                    : new HashMap<Integer, String>();
+            Map<Integer, String> rendered = new HashMap<Integer, String>();
+
+            // Build list of XML records from item info objects, in harvest
+            // order, rendering those not cached
+            String[] recordXML = new String[itemInfos.size()];
+            for (int i = 0; i < recordXML.length; i++) {
+                recordXML[i] = cachedRecords.get(itemInfos.get(i).itemID);
+            }
+            if (renderPool != null) {
+                renderConcurrently(itemInfos, recordXML, schemaURL, metadataPrefix);
+            } else {
+                render(context, itemInfos, recordXML, schemaURL, metadataPrefix);
+            }
             int ignore = 0;
-            for (HarvestedItemInfo itemInfo : itemInfos) {
-                try {
-                    String recordXML = getRecordFactory().create(itemInfo, schemaURL, metadataPrefix);
-                    records.add(recordXML);
-                } catch (CannotDisseminateFormatException cdfe) {
-                    /*
-                     * FIXME: I've a feeling a
-                     * "CannotDisseminateFormatException" should be discarded
-                     * here - it's OK if some records in the requested date
-                     * range don't have the requested metadata format available.
-                     * I'll just log it for now.
-                     */
+            for (int i = 0; i < recordXML.length; i++) {
+                if (recordXML[i] == null) {
                     ignore++;
-                    log.debug(LogManager.getHeader(context, "oai_warning",
-                                "Couldn't disseminate " + metadataPrefix
-                                        + " for " + itemInfo.handle));
+                    continue;
+                }
+                records.add(recordXML[i]);
+                if (!cachedRecords.containsKey(itemInfos.get(i).itemID)) {
+                    rendered.put(itemInfos.get(i).itemID, recordXML[i]);
                 }
             }
+            if (cached && !rendered.isEmpty()) {
+                OAIRecordCache.putRecords(metadataPrefix, itemInfos, rendered);
+            }
 
             // Put results in form needed to return
             results.put("records", records.iterator());
@@ -532,10 +622,11 @@ public class DSpaceOAICatalog extends AbstractCatalog {
             log.info(LogManager.getHeader(context, "oai_harvest", "results=" + records.size() + ", ignore=" + ignore));
 
             // If we have MAX_RECORDS records, we need to provide a resumption
-            // token
-            if ((records.size() + ignore) >= MAX_RECORDS) {
+            // token, continuing after the last item harvested
+            if (itemInfos.size() >= MAX_RECORDS) {
+                int lastID = itemInfos.get(itemInfos.size() - 1).itemID;
                 String resumptionToken = makeResumptionToken(from, until, set,
-                        metadataPrefix, offset + MAX_RECORDS);
+                        metadataPrefix, lastID);
 
                 log.debug(LogManager.getHeader(context, "made_resumption_token",
                                     "token=" + resumptionToken));
@@ -577,51 +668,65 @@ public class DSpaceOAICatalog extends AbstractCatalog {
             OAIInternalServerError {
         log.info(LogManager.getHeader(null, "oai_request", "verb=listSets"));
 
+        return doListSets(0);
+    }
+
+    /**
+     * Retrieve the next set of sets associated with the resumptionToken
+     * 
+     * @param resumptionToken
+     *            implementation-dependent format taken from the previous
+     *            listSets() Map result.
+     * @return a Map object containing "sets" Iterator object (contains
+     *         <setSpec/>XML Strings) as well as an optional resumptionMap Map.
+     * @exception BadResumptionTokenException
+     *                the value of the resumptionToken is invalid or expired.
+     * @exception OAIInternalServerError
+     *                signals an http status code 500 problem
+     */
+    @Override
+    public Map listSets(String resumptionToken)
+            throws BadResumptionTokenException, OAIInternalServerError  {
+        log.info(LogManager.getHeader(null, "oai_request",
+                "verb=listSets,resumptionToken=" + resumptionToken));
+
+        // The token is the position in the set list to continue from
+        int offset;
+        try {
+            offset = Integer.parseInt(resumptionToken);
+        } catch (NumberFormatException nfe) {
+            // Stack trace loss as OAI Exception does not support cause
+            throw new BadResumptionTokenException();
+        }
+        if (offset <= 0) {
+            throw new BadResumptionTokenException();
+        }
+        return doListSets(offset);
+    }
+
+    /**
+     * Method to list sets, at most MAX_RECORDS of them
+     * 
+     * @param offset
+     *            position in the set list to start at
+     * 
+     * @return the Map for listSets to return
+     */
+    private Map doListSets(int offset) throws OAIInternalServerError {
         Context context = null;
-        // List to put results in
-        List<String> sets = new LinkedList<String>();
+        Map<String, Object> results = new HashMap<String, Object>();
 
         try {
-            context = new Context();
-            StringBuffer spec = null;
-            for (BoundedIterator<Collection> collIter = Collection.findAll(context); collIter.hasNext(); ) {
-            	Collection coll = collIter.next();
-                spec = new StringBuffer("<set><setSpec>hdl_");
-                spec.append(coll.getHandle().replace('/', '_'));
-                spec.append("</setSpec>");
-                String collName = coll.getName();
-                if (collName != null) {
-                	spec.append("<setName>");
-                	spec.append(Utils.addEntities(collName));
-                	spec.append("</setName>");
-                } else  {
-                	spec.append("<setName />");
-                    // Warn that there is an error of a null set name
-                	log.info(LogManager.getHeader(null, "oai_error",
-                			       "null_set_name_for_set_id_" + coll.getHandle()));
-                }
-                spec.append("</set>");
-                sets.add(spec.toString());
-            }
+            context = new Context(Context.READ_ONLY);
+            List<String> sets = OAISetCache.getSets(context);
+            int end = Math.min(offset + MAX_RECORDS, sets.size());
 
-            for (BoundedIterator<Community> commIter = Community.findAll(context); commIter.hasNext(); )  {
-            	Community comm = commIter.next();
-                spec = new StringBuffer("<set><setSpec>hdl_");
-                spec.append(comm.getHandle().replace('/', '_'));
-                spec.append("</setSpec>");
-                String commName = comm.getName();
-                if (commName != null) {
-                	spec.append("<setName>");
-                	spec.append(Utils.addEntities(commName));
-                	spec.append("</setName>");
-                } else {
-                	spec.append("<setName />");
-                    // Warn that there is an error of a null set name
-                	log.info(LogManager.getHeader(null, "oai_error",
-                			       "null_set_name_for_set_id_" + comm.getHandle()));
-                }
-                spec.append("</set>");
-                sets.add(spec.toString());
+            // Put results in form needed to return
+            results.put("sets", sets.subList(Math.min(offset, end), end).iterator());
+
+            // If there are more sets, we need to provide a resumption token
+            if (end < sets.size()) {
+                results.put("resumptionMap", getResumptionMap(String.valueOf(end)));
             }
         } catch (SQLException se) {
             // Log the error
@@ -635,42 +740,133 @@ public class DSpaceOAICatalog extends AbstractCatalog {
             }
         }
 
-        // Put results in form needed to return
-        Map<String, Iterator<String>> results = new HashMap<String, Iterator<String>>();
-        results.put("sets", sets.iterator());
-
         return results;
     }
 
-    /**
-     * Retrieve the next set of sets associated with the resumptionToken
-     * 
-     * @param resumptionToken
-     *            implementation-dependent format taken from the previous
-     *            listSets() Map result.
-     * @return a Map object containing "sets" Iterator object (contains
-     *         <setSpec/>XML Strings) as well as an optional resumptionMap Map.
-     * @exception BadResumptionTokenException
-     *                the value of the resumptionToken is invalid or expired.
-     * @exception OAIInternalServerError
-     *                signals an http status code 500 problem
-     */
-    public Map listSets(String resumptionToken)
-            throws BadResumptionTokenException, OAIInternalServerError  {
-        // Resumption tokens not yet supported
-        throw new BadResumptionTokenException();
-    }
-
     /**
      * close the repository
      */
     public void close() {
+        if (renderPool != null) {
+            renderPool.shutdownNow();
+        }
     }
 
     // ******************************************
     // Internal DSpace utility methods below here
     // ******************************************
 
+    /**
+     * Render the records not yet rendered, one after another in the
+     * request context. Records that cannot be disseminated in the format
+     * are left null.
+     */
+    private void render(Context context, List<HarvestedItemInfo> itemInfos,
+            String[] recordXML, String schemaURL, String metadataPrefix)
+            throws SQLException {
+        for (int i = 0; i < recordXML.length; i++) {
+            if (recordXML[i] != null) {
+                continue;
+            }
+            HarvestedItemInfo itemInfo = itemInfos.get(i);
+            try {
+                if (itemInfo.item == null) {
+                    itemInfo.item = Item.find(context, itemInfo.itemID);
+                }
+                recordXML[i] = getRecordFactory().create(itemInfo, schemaURL, metadataPrefix);
+            } catch (CannotDisseminateFormatException cdfe) {
+                /*
+                 * FIXME: I've a feeling a
+                 * "CannotDisseminateFormatException" should be discarded
+                 * here - it's OK if some records in the requested date
+                 * range don't have the requested metadata format available.
+                 * I'll just log it for now.
+                 */
+                log.debug(LogManager.getHeader(context, "oai_warning",
+                            "Couldn't disseminate " + metadataPrefix
+                                    + " for " + itemInfo.handle));
+            }
+        }
+    }
+
+    // a shallow copy of harvested item info
+    private static HarvestedItemInfo copyOf(HarvestedItemInfo itemInfo) {
+        HarvestedItemInfo copy = new HarvestedItemInfo();
+        copy.context = itemInfo.context;
+        copy.itemID = itemInfo.itemID;
+        copy.handle = itemInfo.handle;
+        copy.datestamp = itemInfo.datestamp;
+        copy.item = itemInfo.item;
+        copy.collectionHandles = itemInfo.collectionHandles;
+        copy.withdrawn = itemInfo.withdrawn;
+        return copy;
+    }
+
+    /**
+     * Render the records not yet rendered concurrently, on the render pool.
+     * Each record is rendered in a read-only context of its own, as contexts
+     * may not be shared between threads. Records that cannot be disseminated
+     * in the format are left null.
+     */
+    private void renderConcurrently(List<HarvestedItemInfo> itemInfos,
+            final String[] recordXML, final String schemaURL,
+            final String metadataPrefix) throws OAIInternalServerError {
+        List<Future<String>> futures = new ArrayList<Future<String>>(recordXML.length);
+        for (int i = 0; i < recordXML.length; i++) {
+            if (recordXML[i] != null) {
+                futures.add(null);
+                continue;
+            }
+            final HarvestedItemInfo itemInfo = itemInfos.get(i);
+            futures.add(renderPool.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    Context context = new Context(Context.READ_ONLY);
+                    try {
+                        // render from a copy, so the caller's info never refers to this context
+                        HarvestedItemInfo renderInfo = copyOf(itemInfo);
+                        renderInfo.context = context;
+                        renderInfo.item = Item.find(context, itemInfo.itemID);
+                        return getRecordFactory().create(renderInfo, schemaURL, metadataPrefix);
+                    } catch (CannotDisseminateFormatException cdfe) {
+                        log.debug(LogManager.getHeader(context, "oai_warning",
+                                    "Couldn't disseminate " + metadataPrefix
+                                            + " for " + itemInfo.handle));
+                        return null;
+                    } finally {
+                        context.abort();
+                    }
+                }
+            }));
+        }
+
+        // Collect the records in harvest order
+        try {
+            for (int i = 0; i < recordXML.length; i++) {
+                if (futures.get(i) != null) {
+                    recordXML[i] = futures.get(i).get(RENDER_TIMEOUT, TimeUnit.SECONDS);
+                }
+            }
+        } catch (TimeoutException te) {
+            log.warn(LogManager.getHeader(null, "oai_error", "render_timeout"));
+            throw new OAIInternalServerError("Timed out rendering records");
+        } catch (ExecutionException ee) {
+            log.warn(LogManager.getHeader(null, "oai_error", "render_error"), ee.getCause());
+            // Stack trace loss as OAI Exception does not support cause
+            throw new OAIInternalServerError(ee.getCause().toString());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new OAIInternalServerError(ie.toString());
+        } finally {
+            // Abandon renders no longer needed
+            for (Future<String> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
     /**
      * Get the community or collection signified by a set spec
      * 
@@ -714,7 +910,10 @@ public class DSpaceOAICatalog extends AbstractCatalog {
 
     /**
      * Create a resumption token. The relevant parameters for the harvest are
-     * put in a
+     * put in a token, with the ID of the last item harvested as the cursor
+     * the next harvest continues after. The cursor is marked as an item ID,
+     * so tokens with an offset cursor, issued by earlier versions, are
+     * rejected rather than misread
      * 
      * @param from
      *            OAI 'from' parameter
@@ -724,13 +923,14 @@ public class DSpaceOAICatalog extends AbstractCatalog {
      *            OAI 'set' parameter
      * @param prefix
      *            OAI 'metadataPrefix' parameter
-     * @param offset
-     *            where to start the next harvest
+     * @param afterID
+     *            ID of the last item harvested, after which the next harvest
+     *            starts
      * 
      * @return the appropriate resumption token
      */
     private String makeResumptionToken(String from, String until, String set,
-            String prefix, int offset)  {
+            String prefix, int afterID)  {
     	
         StringBuffer token = new StringBuffer();
         if (from != null) {
@@ -750,7 +950,7 @@ public class DSpaceOAICatalog extends AbstractCatalog {
         }
 
         token.append("/");
-        token.append(String.valueOf(offset));
+        token.append(AFTER_ID_MARKER).append(String.valueOf(afterID));
 
         return (token.toString());
     }
@@ -761,7 +961,10 @@ public class DSpaceOAICatalog extends AbstractCatalog {
      * @param token
      *            the resumption token
      * @return a 5-long array of Objects; 4 Strings (from, until, set, prefix)
-     *         and an Integer (the offset)
+     *         and an Integer (the ID of the last item harvested)
+     * @exception BadResumptionTokenException
+     *                if the token is malformed, or has an unmarked (offset)
+     *                cursor
      */
     private Object[] decodeResumptionToken(String token)
             throws BadResumptionTokenException
@@ -797,7 +1000,12 @@ public class DSpaceOAICatalog extends AbstractCatalog {
                 throw new BadResumptionTokenException();
             }
 
-            obj[4] = Integer.valueOf(st.nextToken());
+            String cursor = st.nextToken();
+            if (!cursor.startsWith(AFTER_ID_MARKER)) {
+                // an offset cursor, from before cursors were item IDs
+                throw new BadResumptionTokenException();
+            }
+            obj[4] = Integer.valueOf(cursor.substring(AFTER_ID_MARKER.length()));
         } catch (NumberFormatException nfe) {
             // Stack trace loss as OAI Exception does not support cause
             throw new BadResumptionTokenException();
@@ -267,7 +267,7 @@ public class AuthorizationDao {
 
     public List<EntityRef> getPolicyReferences(String prefix, String id) throws SQLException {
         List<EntityRef> refList = new ArrayList<>();
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         String[] parts = id.split("\\.");
         String lid = id;
         if (parts.length > 1) {
@@ -309,7 +309,7 @@ public class AuthorizationDao {
 
     public List<LinkEntity> getLinks(int id, String sourceType, String targetType) throws SQLException {
         List<LinkEntity> linkList = new ArrayList<>();
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         switch (sourceType) {
             case "eperson" : getMemberOfLinks(linkList, id, ctx); break;
             case "group" : getMemberLinks(linkList, id, ctx, targetType); break;
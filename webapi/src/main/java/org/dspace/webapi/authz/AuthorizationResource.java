@@ -67,7 +67,7 @@ public class AuthorizationResource {
     @GET @Path("epeople")
     public List<EntityRef> getEPeople() {
         List<EntityRef> refList = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = authzDao.getEPeople(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -83,7 +83,7 @@ public class AuthorizationResource {
     @GET @Path("eperson/{key}")
     public EPersonEntity findEPerson(@PathParam("key") String key) {
         EPersonEntity epEntity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             Integer intKey = Ints.tryParse(key);
             if (intKey != null) {
                 epEntity =  authzDao.getEPerson(context, intKey);
@@ -105,7 +105,7 @@ public class AuthorizationResource {
     @GET @Path("epeople/{query}")
     public List<EntityRef> findEPeople(@PathParam("query") String query) {
         List<EntityRef> refList = new ArrayList<>();
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = authzDao.findEPeople(context, query);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -171,7 +171,7 @@ public class AuthorizationResource {
     @GET @Path("groups")
     public List<EntityRef> getGroups() {
         List<EntityRef> refList = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = authzDao.getGroups(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -187,7 +187,7 @@ public class AuthorizationResource {
     @GET @Path("group/{id}")
     public GroupEntity getGroup(@PathParam("id") int id) {
         GroupEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             entity = authzDao.getGroup(context, id);
         } catch (IllegalArgumentException iaE) {
             throw new WebApplicationException(Response.Status.NOT_FOUND);
@@ -234,7 +234,7 @@ public class AuthorizationResource {
     @GET @Path("group/{gid}/{mtype}/{mid}")
     public LinkEntity getMemberLink(@PathParam("gid") int gid, @PathParam("mtype") String mtype, @PathParam("mid") int mid) {
         LinkEntity linkEntity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             linkEntity =  authzDao.getMemberLink(context, gid, mtype, mid);
         } catch (AuthorizeException authE) {
             throw new WebApplicationException(Response.Status.UNAUTHORIZED);
@@ -302,7 +302,7 @@ public class AuthorizationResource {
     @GET @Path("policy/{id}")
     public PolicyEntity getPolicy(@PathParam("id") int id) {
         PolicyEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             entity =  authzDao.getPolicy(context, id);
         } catch (IllegalArgumentException iaE) {
             throw new WebApplicationException(Response.Status.NOT_FOUND);
@@ -67,7 +67,7 @@ public class ContentDao {
 
     public List<EntityRef> getContentReferences(String handle, String contentType, String filter) throws SQLException {
         List<EntityRef> refList = new ArrayList<>();
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         switch (contentType) {
             case "collections" : getCollectionRefs(refList, handle, ctx); break;
             case "subcommunities" : getSubcommunityRefs(refList, handle, ctx); break;
@@ -85,7 +85,7 @@ public class ContentDao {
 
     public List<EntityRef> getSiteReferences(String contentType, String filter) throws SQLException {
         List<EntityRef> refList = new ArrayList<>();
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         switch (contentType) {
             case "communities" : getCommunityRefs(refList, ctx); break;
             case "mdsets" : getMetadataSetRefs(refList, null, ctx); break;
@@ -98,7 +98,7 @@ public class ContentDao {
     }
 
     public ContentEntity getEntity(String prefix, String id) throws SQLException {
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         DSpaceObject dso = resolveDso(ctx, prefix, id);
         ContentEntity entity = resolveEntity(dso);
         ctx.complete();
@@ -106,7 +106,7 @@ public class ContentDao {
     }
 
     public SiteEntity getSiteEntity() throws SQLException {
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         Site site = Site.find(ctx, 1);
         SiteEntity entity = new SiteEntity(site);
         ctx.complete();
@@ -228,7 +228,7 @@ public class ContentDao {
     }
 
     public MetadataEntity getMetadataSet(String prefix, String id, String name) throws SQLException {
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         DSpaceObject dso;
         if (prefix != null) {
             dso = resolveDso(ctx, prefix, id);
@@ -246,7 +246,7 @@ public class ContentDao {
     }
 
     public ViewEntity getMetadataView(String prefix, String id, String name) throws SQLException {
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         DSpaceObject dso;
         if (prefix != null) {
             dso = resolveDso(ctx, prefix, id);
@@ -302,7 +302,7 @@ public class ContentDao {
     }
 
     public MediaReader getMediaReader(String prefix, String id) throws AuthorizeException, IOException, SQLException {
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         Bitstream bitstream = null;
         if (prefix != null) {
             bitstream = (Bitstream)resolveDso(ctx, prefix, id);
@@ -458,7 +458,7 @@ public class ContentDao {
         DSpaceObject dso = HandleManager.resolveToObject(ctx, handle);
         if (dso != null && dso.getType() == Constants.COLLECTION) {
             Collection coll = (Collection)dso;
-            BoundedIterator<Item> itemIter = coll.getItems();
+            BoundedIterator<Item> itemIter = coll.getItems().preload(BoundedIterator.PRELOAD_CHUNK, true);
             while (itemIter.hasNext()) {
                 Item item = itemIter.next();
                 refList.add(new EntityRef(item.getName(), item.getHandle(), "item"));
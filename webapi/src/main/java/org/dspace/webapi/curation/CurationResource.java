@@ -64,7 +64,7 @@ public class CurationResource {
 
     @GET @Path("taskgroups")
     public List<GroupRef> getTaskGroups() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             return curationDao.getTaskGroups(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -73,7 +73,7 @@ public class CurationResource {
 
     @GET @Path("taskgroup/{groupId}")
     public TaskGroup getTaskGroup(@PathParam("groupId") String groupId) {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             return curationDao.getTaskGroup(context, groupId);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -82,7 +82,7 @@ public class CurationResource {
 
     @GET @Path("selectorgroups")
     public List<GroupRef> getSelectorGroups() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             return curationDao.getSelectorGroups(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -91,7 +91,7 @@ public class CurationResource {
 
     @GET @Path("selectorgroup/{groupId}")
     public SelectorGroup getSelectorGroup(@PathParam("groupId") String groupId) {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             return curationDao.getSelectorGroup(context, groupId);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
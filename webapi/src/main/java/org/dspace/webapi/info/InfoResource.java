@@ -83,7 +83,7 @@ public class InfoResource {
 
     @GET @Path("server")
     public ServerEntity serverInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             ServerEntity ent = infoDao.getServer(context, srvCtx.getServerInfo());
             context.complete();
             return ent;
@@ -95,7 +95,7 @@ public class InfoResource {
 
     @GET @Path("system")
     public InfoEntity systemInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             SystemEntity ent = infoDao.getSystem(context);
             context.complete();
             return ent;
@@ -106,7 +106,7 @@ public class InfoResource {
 
     @GET @Path("assets")
     public AssetsEntity assetsInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             AssetsEntity ent = infoDao.getAssets(context);
             context.complete();
             return ent;
@@ -118,7 +118,7 @@ public class InfoResource {
     @GET @Path("metadata")
     public List<EntityRef> metadataInfo() {
         List<EntityRef> refList = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = infoDao.getSchemas(context);
             context.complete();
         } catch (SQLException sqlE) {
@@ -135,7 +135,7 @@ public class InfoResource {
     @GET @Path("metadata/{key}")
     public InfoEntity schemaInfo(@PathParam("key") String key) {
         FieldsEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             entity = infoDao.getFields(context, key);
             context.complete();
         } catch (IllegalArgumentException iaE) {
@@ -151,7 +151,7 @@ public class InfoResource {
     // return a list of bitstream formats and their occurence counts
     @GET @Path("formats")
     public InfoEntity formatsInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             FormatsEntity ent = infoDao.getFormats(context);
             context.complete();
             return ent;
@@ -162,7 +162,7 @@ public class InfoResource {
     
     @GET @Path("users")
     public UsersEntity userInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             UsersEntity ent = infoDao.getUsers(context);
             context.complete();
             return ent;
@@ -173,7 +173,7 @@ public class InfoResource {
 
     @GET @Path("workflow")
     public WorkflowEntity workflowInfo() {
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             WorkflowEntity ent = infoDao.getWorkflow(context);
             context.complete();
             return ent;
@@ -192,7 +192,7 @@ public class RegistryDao {
 
     public List<EntityRef> getReferences(int id, String sourceType, String targetType) throws SQLException {
         List<EntityRef> refList = new ArrayList<>();
-        Context ctx = new Context();
+        Context ctx = new Context(Context.READ_ONLY);
         switch (sourceType) {
             case "schema" : getFields(refList, id, ctx); break;
             default: break;
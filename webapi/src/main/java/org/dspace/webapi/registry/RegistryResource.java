@@ -66,7 +66,7 @@ public class RegistryResource {
     @GET @Path("schemas")
     public List<EntityRef> getSchemas() {
         List<EntityRef> refList = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = regDao.getSchemas(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -82,7 +82,7 @@ public class RegistryResource {
     @GET @Path("schema/{key}")
     public SchemaEntity getSchema(@PathParam("key") String key) {
         SchemaEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             Integer intKey = Ints.tryParse(key);
             if (intKey != null) {
                 entity = regDao.getSchema(context, intKey);
@@ -104,7 +104,7 @@ public class RegistryResource {
     @GET @Path("schemas/{query}")
     public List<EntityRef> findSchemas(@PathParam("query") String query) {
         List<EntityRef> refList = new ArrayList<>();
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = regDao.findSchemas(context, query);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -170,7 +170,7 @@ public class RegistryResource {
     @GET @Path("fields")
     public List<EntityRef> getFields() {
         List<EntityRef> refList = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             refList = regDao.getFields(context);
         } catch (SQLException sqlE) {
             throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -186,7 +186,7 @@ public class RegistryResource {
     @GET @Path("field/{id}")
     public FieldEntity getField(@PathParam("id") int id) {
         FieldEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             entity = regDao.getField(context, id);
         } catch (IllegalArgumentException iaE) {
             throw new WebApplicationException(Response.Status.NOT_FOUND);
@@ -250,7 +250,7 @@ public class RegistryResource {
     @GET @Path("format/{id}")
     public FormatEntity getFormat(@PathParam("id") int id) {
         FormatEntity entity = null;
-        try (org.dspace.core.Context context = new org.dspace.core.Context()) {
+        try (org.dspace.core.Context context = new org.dspace.core.Context(org.dspace.core.Context.READ_ONLY)) {
             entity = regDao.getFormat(context, id);
         } catch (IllegalArgumentException iaE) {
             throw new WebApplicationException(Response.Status.NOT_FOUND);